@@ -373,6 +373,51 @@ public class SimpleNameMatcher {
 
 	}
 
+	/**
+	 * It will return the lengths of the name once it has been cleaned up, with and
+	 * without separations, as used to compute the similarity with other names. The
+	 * lengths of a name can be computed once, and reused with
+	 * {@link #getMaxSimilarity(int[], int[])} to discard names without comparing
+	 * them.
+	 *
+	 * @param name
+	 * @return
+	 */
+	public static int[] getLengths(String name) {
+
+		String cleanName = cleanName(name);
+
+		return new int[] { cleanName.length(), removeSeparators(cleanName).length() };
+
+	}
+
+	/**
+	 * It will return an upper bound of the score that two names with the given
+	 * lengths (see {@link #getLengths(String)}) may get. Only the letters are
+	 * taken into account: each letter of the bigger name that cannot be paired
+	 * with a letter of the smaller one costs, at least, the cheapest change (a
+	 * half separation), since separators can be added or removed cheaply.
+	 *
+	 * @param lengths1
+	 * @param lengths2
+	 * @return
+	 */
+	public static double getMaxSimilarity(int[] lengths1, int[] lengths2) {
+
+		int biggerLength = Math.max(lengths1[1], lengths2[1]);
+		int smallerLength = Math.min(lengths1[1], lengths2[1]);
+
+		if (biggerLength == 0) {
+			return 100;
+		}
+
+		double normalizationFactor = (1.0 / biggerLength) * 100;
+		int differenceOfLength = biggerLength - smallerLength;
+
+		return 100 - differenceOfLength * normalizationFactor * halfSeparationWeight;
+
+	}
+
 	private static String cleanName(String name) {
 
 		String cleanName = name;
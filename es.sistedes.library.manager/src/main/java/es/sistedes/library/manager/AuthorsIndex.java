@@ -0,0 +1,495 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import com.simplenamematcher.SimpleNameMatcher;
+
+import es.sistedes.library.manager.dspace.client.ConditionalGetCacheFilterFunction;
+import es.sistedes.library.manager.dspace.model.DSAuthor;
+import es.sistedes.library.manager.dspace.model.DSRoot;
+import reactor.core.publisher.Mono;
+
+/**
+ * In-memory index of all the authors of the Sistedes Digital Library, so that
+ * signatures can be matched locally instead of sending a search query to the
+ * library for each of them. Authors are indexed by their ORCID, their
+ * (lower-cased) e-mails, and the tokens of their normalized name and name
+ * variants.
+ *
+ * The index is persisted between runs in a compact binary file, together with
+ * a high-water mark of the modification dates of the downloaded authors, so
+ * that later runs only download the authors modified since then. Authors read
+ * from that file only keep the information needed to match them and to decide
+ * whether they must be updated, so they must be retrieved again from the
+ * library (see {@link #resolve(DSAuthor)}) before updating them.
+ *
+ * The index is thread-safe: authors may be created or updated while other
+ * authors are being looked up.
+ */
+class AuthorsIndex {
+
+	private static final Logger logger = LoggerFactory.getLogger(AuthorsIndex.class);
+
+	/**
+	 * Number of authors downloaded per request when the index is built
+	 */
+	private static final int PAGE_SIZE = 100;
+
+	private static final Path CACHE_DIR = Paths.get(System.getProperty("user.home"), ".sistedes-library-manager", "authors-index");
+
+	private static final int CACHE_FORMAT_VERSION = 1;
+
+	/**
+	 * Authors modified shortly before the high-water mark are downloaded again,
+	 * since the search index of the library may not have been updated yet when
+	 * the previous run took place
+	 */
+	private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+	/**
+	 * Number of authors whose names are compared with a searched name. Candidates
+	 * tied with the last one are also compared. This is a heuristic: a true match
+	 * sharing only common tokens with the searched name (e.g., its family names)
+	 * is missed if more than this number of authors share rarer tokens with it.
+	 */
+	private static final int MAX_SCORED_CANDIDATES = 25;
+
+	private static final String ORCID_KEY = "orcid:";
+	private static final String EMAIL_KEY = "email:";
+	private static final String NAME_KEY = "name:";
+
+	private final Map<String, DSAuthor> authors = new HashMap<>();
+	// Keys (ORCID, e-mails and name tokens) to the UUIDs of the authors
+	private final Map<String, Set<String>> index = new HashMap<>();
+	// UUIDs of the authors to their keys, which are needed to re-index an author
+	// once it has been modified
+	private final Map<String, Set<String>> keys = new HashMap<>();
+	// UUIDs of the authors to the lengths of their names and name variants (see
+	// SimpleNameMatcher.getLengths(String)), which are used to discard candidates
+	private final Map<String, List<int[]>> nameLengths = new HashMap<>();
+	// UUIDs of the authors read from the cache file, which are incomplete
+	private final Set<String> detached = new HashSet<>();
+
+	private final DSRoot dsRoot;
+	private final Path cacheFile;
+	// Latest modification date of the authors downloaded from the library
+	private Instant highWaterMark;
+
+	private AuthorsIndex(DSRoot dsRoot, Path cacheFile) {
+		this.dsRoot = dsRoot;
+		this.cacheFile = cacheFile;
+	}
+
+	/**
+	 * Builds the index. If the cache file exists, it is loaded, and only the
+	 * authors modified since the previous run are downloaded. Otherwise, all the
+	 * authors of the authors collection are downloaded, page by page.
+	 *
+	 * @param dsRoot
+	 * @param cacheFile the cache file (see {@link #getCacheFile(URI, String)}),
+	 *                  or <code>null</code> to always download all the authors
+	 * @param rebuild   whether to ignore the cache file, if it exists
+	 * @return
+	 */
+	static AuthorsIndex create(DSRoot dsRoot, Path cacheFile, boolean rebuild) {
+		long start = System.currentTimeMillis();
+		AuthorsIndex authorsIndex = new AuthorsIndex(dsRoot, cacheFile);
+		if (cacheFile != null && !rebuild && Files.exists(cacheFile)) {
+			try {
+				authorsIndex.load();
+				logger.info(MessageFormat.format("Loaded {0,number,#} author(s) from ''{1}''", authorsIndex.size(), cacheFile));
+			} catch (IOException e) {
+				logger.warn(MessageFormat.format("Unable to read ''{0}'', all the authors will be downloaded ({1})", cacheFile, e.getLocalizedMessage()));
+				authorsIndex = new AuthorsIndex(dsRoot, cacheFile);
+			}
+		}
+		Instant modifiedSince = authorsIndex.highWaterMark != null ? authorsIndex.highWaterMark.minus(REFRESH_OVERLAP) : null;
+		if (modifiedSince == null) {
+			logger.info("Downloading the authors of the Sistedes Digital Library...");
+		} else {
+			logger.info(MessageFormat.format("Downloading the authors modified since {0}...", modifiedSince));
+		}
+		AtomicInteger downloaded = new AtomicInteger();
+		AuthorsIndex index = authorsIndex;
+		// @formatter:off
+		dsRoot.getAuthorsModifiedSinceAsync(modifiedSince, PAGE_SIZE)
+			.doOnNext(author -> {
+				index.put(author);
+				index.advanceHighWaterMark(author.getLastModified());
+				downloaded.incrementAndGet();
+			}).blockLast();
+		// @formatter:on
+		logger.info(MessageFormat.format("Indexed {0,number,#} author(s), {1,number,#} downloaded, in {2,number,#} ms", index.size(), downloaded.get(),
+				System.currentTimeMillis() - start));
+		return index;
+	}
+
+	/**
+	 * Returns the cache file of the index of the given library, as seen by the
+	 * given user
+	 *
+	 * @param uri
+	 * @param email
+	 * @return
+	 */
+	static Path getCacheFile(URI uri, String email) {
+		return CACHE_DIR.resolve(ConditionalGetCacheFilterFunction.hash(uri + " " + email) + ".bin");
+	}
+
+	/**
+	 * Adds the given author to the index, or re-indexes it if it was already
+	 * indexed (e.g., after it has been updated)
+	 *
+	 * @param author
+	 */
+	synchronized void put(DSAuthor author) {
+		remove(author.getUuid());
+		detached.remove(author.getUuid());
+		Set<String> authorKeys = getKeys(author);
+		authors.put(author.getUuid(), author);
+		keys.put(author.getUuid(), authorKeys);
+		nameLengths.put(author.getUuid(), getNames(author).stream().map(AuthorsIndex::getLengths).toList());
+		authorKeys.forEach(key -> index.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(author.getUuid()));
+	}
+
+	synchronized int size() {
+		return authors.size();
+	}
+
+	/**
+	 * Returns the author with the given ORCID, if any
+	 *
+	 * @param orcid
+	 * @return
+	 */
+	Optional<DSAuthor> findByOrcid(String orcid) {
+		Optional<DSAuthor> found;
+		synchronized (this) {
+			found = find(ORCID_KEY + DSAuthor.normalizeOrcid(orcid)).stream().findFirst();
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the author with the given e-mail (ignoring its casing), if any
+	 *
+	 * @param email
+	 * @return
+	 */
+	Optional<DSAuthor> findByEmail(String email) {
+		Optional<DSAuthor> found;
+		synchronized (this) {
+			found = find(EMAIL_KEY + email.trim().toLowerCase(Locale.ROOT)).stream().findFirst();
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the author whose name (or name variant) is the most similar to the
+	 * given name, among those that share at least one name token with it.
+	 *
+	 * Only a few candidates are actually compared with the given name: those
+	 * sharing the rarest tokens with it (so that sharing a common family name
+	 * counts less than sharing an unusual one), and whose name lengths do not
+	 * already rule out reaching the given minimum similarity. Thus, unlike the
+	 * length filter, which never discards a match, the limit of
+	 * {@value #MAX_SCORED_CANDIDATES} candidates may miss one.
+	 *
+	 * @param fullName
+	 * @param minSimilarity the minimum similarity of the candidates, used to
+	 *                      discard them based only on their length
+	 * @return
+	 */
+	Optional<DSAuthor> findByName(String fullName, double minSimilarity) {
+		int[] lengths = getLengths(fullName);
+		List<DSAuthor> candidates;
+		synchronized (this) {
+			Map<String, Double> weights = new HashMap<>();
+			for (String token : new HashSet<>(tokenize(fullName))) {
+				Set<String> uuids = index.getOrDefault(NAME_KEY + token, Set.of());
+				if (uuids.isEmpty()) {
+					continue;
+				}
+				double weight = Math.log((double) (authors.size() + 1) / uuids.size());
+				uuids.forEach(uuid -> weights.merge(uuid, weight, Double::sum));
+			}
+			// @formatter:off
+			List<Map.Entry<String, Double>> ranked = weights.entrySet().stream()
+					.filter(entry -> mayReach(lengths, nameLengths.get(entry.getKey()), minSimilarity))
+					.sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+					.toList();
+			// @formatter:on
+			int limit = Math.min(MAX_SCORED_CANDIDATES, ranked.size());
+			while (limit < ranked.size() && ranked.get(limit).getValue().equals(ranked.get(limit - 1).getValue())) {
+				limit++;
+			}
+			candidates = ranked.subList(0, limit).stream().map(entry -> authors.get(entry.getKey())).toList();
+		}
+		// Scoring is the expensive part, do it without holding the lock
+		DSAuthor best = null;
+		double bestSimilarity = -1;
+		for (DSAuthor candidate : candidates) {
+			double similarity = getMaxNameSimilarity(fullName, candidate);
+			if (similarity > bestSimilarity) {
+				best = candidate;
+				bestSimilarity = similarity;
+			}
+		}
+		return Optional.ofNullable(best);
+	}
+
+	/**
+	 * Writes the index to its cache file, if any. The file is replaced
+	 * atomically, so that an interrupted run never leaves a truncated file
+	 * behind.
+	 */
+	synchronized void save() {
+		if (cacheFile == null) {
+			return;
+		}
+		try {
+			Files.createDirectories(cacheFile.getParent());
+			Path temp = Files.createTempFile(cacheFile.getParent(), cacheFile.getFileName().toString(), ".tmp");
+			try {
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(temp))))) {
+					out.writeInt(CACHE_FORMAT_VERSION);
+					out.writeLong(highWaterMark != null ? highWaterMark.toEpochMilli() : -1);
+					out.writeInt(authors.size());
+					for (DSAuthor author : authors.values()) {
+						writeString(out, author.getUuid());
+						out.writeLong(author.getLastModified() != null ? author.getLastModified().getTime() : -1);
+						writeString(out, author.getOrcid());
+						writeString(out, author.getFamilyName());
+						writeString(out, author.getGivenName());
+						writeStrings(out, author.getEmails());
+						writeStrings(out, author.getNameVariants());
+						writeStrings(out, author.getAffiliations());
+						writeStrings(out, author.getWebs());
+					}
+				}
+				Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(temp);
+			}
+			logger.debug(MessageFormat.format("Saved {0,number,#} author(s) to ''{1}''", authors.size(), cacheFile));
+		} catch (IOException e) {
+			logger.warn(MessageFormat.format("Unable to write ''{0}''! ({1})", cacheFile, e.getLocalizedMessage()));
+		}
+	}
+
+	private synchronized void load() throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(cacheFile))))) {
+			if (in.readInt() != CACHE_FORMAT_VERSION) {
+				throw new IOException("Unsupported format version");
+			}
+			long mark = in.readLong();
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				DSAuthor author = new DSAuthor();
+				author.setUuid(readString(in));
+				long lastModified = in.readLong();
+				if (lastModified >= 0) {
+					author.setLastModified(new Date(lastModified));
+				}
+				author.setOrcid(readString(in));
+				author.setFamilyName(readString(in));
+				author.setGivenName(readString(in));
+				author.setEmails(readStrings(in));
+				author.setNameVariants(readStrings(in));
+				author.setAffiliations(readStrings(in));
+				author.setWebs(readStrings(in));
+				put(author);
+				detached.add(author.getUuid());
+			}
+			highWaterMark = mark >= 0 ? Instant.ofEpochMilli(mark) : null;
+		}
+	}
+
+	private synchronized void advanceHighWaterMark(Date lastModified) {
+		if (lastModified != null && (highWaterMark == null || lastModified.toInstant().isAfter(highWaterMark))) {
+			highWaterMark = lastModified.toInstant();
+		}
+	}
+
+	/**
+	 * Returns the given author if it is complete, or retrieves it from the library
+	 * if it was read from the cache file. Authors that no longer exist are removed
+	 * from the index.
+	 *
+	 * @param author
+	 * @return
+	 */
+	Optional<DSAuthor> resolve(DSAuthor author) {
+		synchronized (this) {
+			if (!detached.contains(author.getUuid())) {
+				return Optional.of(author);
+			}
+		}
+		// @formatter:off
+		Optional<DSAuthor> retrieved = dsRoot.getItemsEndpoint().getAuthorAsync(author.getUuid())
+				.onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty())
+				.blockOptional();
+		// @formatter:on
+		synchronized (this) {
+			if (retrieved.isPresent()) {
+				put(retrieved.get());
+			} else if (detached.remove(author.getUuid())) {
+				logger.warn(MessageFormat.format("Author with UUID ''{0}'' no longer exists, removing it from the index", author.getUuid()));
+				remove(author.getUuid());
+			}
+		}
+		return retrieved;
+	}
+
+	/**
+	 * Returns the maximum similarity between the given name and the name (or any
+	 * of the name variants) of the given author
+	 *
+	 * @param fullName
+	 * @param author
+	 * @return
+	 */
+	static double getMaxNameSimilarity(String fullName, DSAuthor author) {
+		return getNames(author).stream().mapToDouble(name -> SimpleNameMatcher.compareNamesSafe(fullName, name)).max().orElse(0.0d);
+	}
+
+	private void remove(String uuid) {
+		authors.remove(uuid);
+		nameLengths.remove(uuid);
+		Set<String> authorKeys = keys.remove(uuid);
+		if (authorKeys != null) {
+			authorKeys.forEach(key -> {
+				Set<String> uuids = index.get(key);
+				uuids.remove(uuid);
+				if (uuids.isEmpty()) {
+					index.remove(key);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Whether any of the names with the given lengths may reach the given
+	 * similarity with a name of length <code>lengths</code>. Names whose lengths
+	 * are unknown are never discarded.
+	 */
+	private static boolean mayReach(int[] lengths, List<int[]> candidateLengths, double minSimilarity) {
+		if (lengths == null) {
+			return true;
+		}
+		return candidateLengths.stream().anyMatch(other -> other == null || SimpleNameMatcher.getMaxSimilarity(lengths, other) >= minSimilarity);
+	}
+
+	private List<DSAuthor> find(String key) {
+		return index.getOrDefault(key, Set.of()).stream().map(authors::get).toList();
+	}
+
+	private static Set<String> getKeys(DSAuthor author) {
+		Set<String> result = new HashSet<>();
+		if (StringUtils.isNotBlank(author.getOrcid())) {
+			result.add(ORCID_KEY + DSAuthor.normalizeOrcid(author.getOrcid()));
+		}
+		author.getEmails().stream().filter(StringUtils::isNotBlank).forEach(email -> result.add(EMAIL_KEY + email.trim().toLowerCase(Locale.ROOT)));
+		getNames(author).forEach(name -> tokenize(name).forEach(token -> result.add(NAME_KEY + token)));
+		return result;
+	}
+
+	private static Collection<String> getNames(DSAuthor author) {
+		List<String> names = new ArrayList<>(author.getNameVariants());
+		names.add(author.getFullName());
+		return names;
+	}
+
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if (value != null) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+
+	private static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+		out.writeInt(values.size());
+		for (String value : values) {
+			out.writeUTF(value);
+		}
+	}
+
+	private static List<String> readStrings(DataInputStream in) throws IOException {
+		int size = in.readInt();
+		List<String> values = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			values.add(in.readUTF());
+		}
+		return values;
+	}
+
+	/**
+	 * Returns the lengths of the given name (see
+	 * {@link SimpleNameMatcher#getLengths(String)}), or <code>null</code> if it
+	 * cannot be measured
+	 */
+	private static int[] getLengths(String name) {
+		try {
+			return SimpleNameMatcher.getLengths(StringUtils.defaultString(name));
+		} catch (RuntimeException e) {
+			// E.g., "Family," cannot be reordered as "Given Family"
+			return null;
+		}
+	}
+
+	/**
+	 * Splits the given name in lower-cased tokens without accents, ignoring
+	 * initials
+	 */
+	static List<String> tokenize(String name) {
+		String normalized = StringUtils.stripAccents(StringUtils.defaultString(name)).toLowerCase(Locale.ROOT);
+		return Arrays.stream(normalized.split("[^\\p{Alnum}]+")).filter(token -> token.length() > 1).toList();
+	}
+}
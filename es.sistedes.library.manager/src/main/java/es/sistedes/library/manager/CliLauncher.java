@@ -11,11 +11,18 @@
 
 package es.sistedes.library.manager;
 
+import java.net.URI;
+import java.nio.file.Path;
+
 import com.openhtmltopdf.util.XRLog;
 
+import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
+import es.sistedes.library.manager.dspace.client.RecordReplayExchangeFilterFunction.Mode;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Spec;
 
 public class CliLauncher {
@@ -31,6 +38,63 @@ public class CliLauncher {
 	static class Commands {
 		@Spec
 		CommandSpec spec;
+
+		@Option(names = { "--record" }, paramLabel = "CASSETTE", description = "Records the HTTP traffic with the Sistedes Digital Library in the given file. "
+				+ "Requires a parallelism of 1, since recorded responses are matched by the order of the requests.")
+		private Path recordCassette;
+
+		@Option(names = { "--replay" }, paramLabel = "CASSETTE", description = "Replays the HTTP traffic recorded in the given file instead of contacting the Sistedes Digital Library. "
+				+ "Requires a parallelism of 1, and the same command and local files as when recording.")
+		private Path replayCassette;
+
+		@Option(names = { "--replay-fast" }, description = "When replaying, serve the recorded responses as fast as possible instead of at the recorded timing.")
+		private boolean replayFast;
+
+		@Option(names = { "--metrics" }, paramLabel = "FILE", description = "Writes per-endpoint metrics of the requests to the Sistedes Digital Library in the given file (Prometheus text format if its extension is .prom or .txt, JSON otherwise).")
+		private Path metricsFile;
+
+		/**
+		 * Creates a connection to the Sistedes Digital Library, honoring the record,
+		 * replay and metrics options
+		 * 
+		 * @param uri
+		 * @param email
+		 * @param password
+		 * @return
+		 */
+		DSpaceConnection createConnection(URI uri, String email, String password) {
+			return createConnection(uri, email, password, 1);
+		}
+
+		/**
+		 * Creates a connection to the Sistedes Digital Library, honoring the record,
+		 * replay and metrics options, for a command that runs up to
+		 * <code>parallelism</code> units of work concurrently
+		 * 
+		 * @param uri
+		 * @param email
+		 * @param password
+		 * @param parallelism
+		 * @return
+		 */
+		DSpaceConnection createConnection(URI uri, String email, String password, int parallelism) {
+			DSpaceConnection connection;
+			if (recordCassette != null && replayCassette != null) {
+				throw new ParameterException(spec.commandLine(), "--record and --replay are mutually exclusive");
+			} else if ((recordCassette != null || replayCassette != null) && parallelism > 1) {
+				// Concurrent units of work send their requests in a different order on
+				// every run, so each one could be replayed the response of another one
+				throw new ParameterException(spec.commandLine(), "--record and --replay require a parallelism of 1");
+			} else if (recordCassette != null) {
+				connection = DSpaceConnectionManager.createConnection(uri, email, password, Mode.RECORD, recordCassette);
+			} else if (replayCassette != null) {
+				connection = DSpaceConnectionManager.createConnection(uri, email, password, replayFast ? Mode.REPLAY_FAST : Mode.REPLAY, replayCassette);
+			} else {
+				connection = DSpaceConnectionManager.createConnection(uri, email, password);
+			}
+			connection.setMetricsReport(metricsFile);
+			return connection;
+		}
 	}
 
 	/**
@@ -65,11 +65,13 @@ class CurateAuthorsCommand implements Callable<Integer> {
 
 	@Override
 	public Integer call() throws Exception {
-		connection = DSpaceConnectionManager.createConnection(uri, email, password);
+		connection = mainCmd.createConnection(uri, email, password);
 		dsRoot = connection.getDsRoot();
 		
 		curate(dsRoot);
 		
+		connection.close();
+		
 		// Return success
 		return 0;
 	}
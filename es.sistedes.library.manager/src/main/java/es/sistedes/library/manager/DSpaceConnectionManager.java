@@ -11,33 +11,60 @@
 
 package es.sistedes.library.manager;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
-import java.util.Calendar;
-import java.util.Date;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseCookie;
-import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
 import org.springframework.http.codec.json.Jackson2JsonEncoder;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
 import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunctions;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 
 import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
 import com.fasterxml.jackson.annotation.JsonInclude.Include;
 import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import es.sistedes.library.manager.dspace.client.AdaptiveConcurrencyLimitFilterFunction;
+import es.sistedes.library.manager.dspace.client.CoalescingExchangeFilterFunction;
+import es.sistedes.library.manager.dspace.client.ConditionalGetCacheFilterFunction;
+import es.sistedes.library.manager.dspace.client.MetricsExchangeFilterFunction;
+import es.sistedes.library.manager.dspace.client.RecordReplayExchangeFilterFunction;
+import es.sistedes.library.manager.dspace.client.RetryingExchangeFilterFunction;
 import es.sistedes.library.manager.dspace.model.DSRoot;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 public class DSpaceConnectionManager {
 
@@ -45,105 +72,482 @@ public class DSpaceConnectionManager {
 		
 		private static final Logger logger = LoggerFactory.getLogger(DSpaceConnection.class);
 		
-		private static final int TIMEOUT_MINUTES = 25;
+		/**
+		 * Name of the request attribute that disables the transparent
+		 * re-authentication of a request that fails with a 401 status. Used by the
+		 * requests of the authentication endpoint itself.
+		 */
+		public static final String SKIP_REAUTHENTICATION_ATTRIBUTE = DSpaceConnection.class.getName() + ".skipReauthentication";
+		
+		// Fallback lifetime of the JWT, used when its expiry cannot be read
+		private static final Duration DEFAULT_TOKEN_LIFETIME = Duration.ofMinutes(25);
+		// The JWT is refreshed this amount of time before it actually expires
+		private static final Duration REFRESH_MARGIN = Duration.ofMinutes(2);
+		// Delay before retrying a failed refresh
+		private static final Duration REFRESH_RETRY_DELAY = Duration.ofSeconds(30);
+		
+		// Connection pool settings. Idle connections are evicted before the
+		// server-side keep-alive timeout expires to avoid reusing stale sockets
+		private static final int MAX_CONNECTIONS = 16;
+		private static final Duration MAX_IDLE_TIME = Duration.ofSeconds(15);
+		private static final Duration MAX_LIFE_TIME = Duration.ofMinutes(5);
+		private static final Duration EVICTION_INTERVAL = Duration.ofSeconds(30);
+		// Limit of the responses that are decoded in memory. Pages of large collections
+		// are decoded as a stream instead, see AbstractPageableResponse.streamElements()
+		private static final int MAX_IN_MEMORY_SIZE = 16 * 1024 * 1024;
+		
+		// How long the responses to GET requests are reused by identical requests
+		private static final Duration COALESCING_TIME_TO_LIVE = Duration.ofSeconds(5);
+		
+		private static final Path HTTP_CACHE_DIR = Paths.get(System.getProperty("user.home"), ".sistedes-library-manager", "http-cache");
+		
+		private final String email;
+		private final String password;
+		private ConnectionProvider connectionProvider;
+		private final AdaptiveConcurrencyLimitFilterFunction concurrencyLimiter = new AdaptiveConcurrencyLimitFilterFunction(MAX_CONNECTIONS);
+		private final RetryingExchangeFilterFunction retryFilter = new RetryingExchangeFilterFunction();
+		private final MetricsExchangeFilterFunction metricsFilter = new MetricsExchangeFilterFunction();
+		private final CoalescingExchangeFilterFunction coalescingFilter = new CoalescingExchangeFilterFunction(COALESCING_TIME_TO_LIVE);
+		private Path metricsReport;
+		private ConditionalGetCacheFilterFunction cacheFilter;
+		private final RecordReplayExchangeFilterFunction.Mode trafficMode;
+		private final Path cassette;
+		private RecordReplayExchangeFilterFunction recordReplayFilter;
+		private ObjectMapper mapper;
+		private ObjectMapper responseMapper;
+		private WebClient client;
 		private DSRoot dsRoot;
-		private Date lastIssued;
-		private Thread refreshThread;
-		private volatile boolean exit = false;
-		
-		private DSpaceConnection(URI uri, String email, String password) {
-			dsRoot = DSRoot.create(uri);
-			dsRoot.callCsrfEndpoint();
-			dsRoot.getAuthnEndpoint().doLogin(email, password);
-			lastIssued = Calendar.getInstance().getTime();
-			refreshThread = new Thread() {
-				@Override
-				public void run() {
-					while (!exit) {
-						if (Calendar.getInstance().getTime().toInstant().getEpochSecond() - lastIssued.toInstant().getEpochSecond() > TIMEOUT_MINUTES * 60) {
-							ResponseEntity<Void> result = dsRoot.getAuthnEndpoint().refreshAuth();
-							if (result.getStatusCode().isError()) {
-								logger.error("Unable to refresh JWT token!");
-							}
-							lastIssued = Calendar.getInstance().getTime();
-						}
-						try {
-							sleep(1000);
-						} catch (InterruptedException e) {
-						}
-					}
-				}
-			};
-			refreshThread.setDaemon(true);
-			refreshThread.start();
+		private final ScheduledExecutorService refreshScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "dspace-token-refresh");
+			thread.setDaemon(true);
+			return thread;
+		});
+		private final AtomicReference<ScheduledFuture<?>> scheduledRefresh = new AtomicReference<>();
+		private final AtomicReference<Mono<Void>> reauthentication = new AtomicReference<>();
+		// Incremented every time the session is re-authenticated
+		private final AtomicLong sessionGeneration = new AtomicLong();
+		
+		private DSpaceConnection(URI uri, String email, String password, RecordReplayExchangeFilterFunction.Mode trafficMode, Path cassette) {
+			this.email = email;
+			this.password = password;
+			this.trafficMode = trafficMode;
+			this.cassette = cassette;
+			connectionProvider = ConnectionProvider.builder("dspace")
+					.maxConnections(MAX_CONNECTIONS)
+					.maxIdleTime(MAX_IDLE_TIME)
+					.maxLifeTime(MAX_LIFE_TIME)
+					.evictInBackground(EVICTION_INTERVAL)
+					// Requests are already queued by the concurrency limiter
+					.pendingAcquireMaxCount(-1)
+					.build();
+			// Cached responses depend on the server and on the permissions of the user
+			cacheFilter = new ConditionalGetCacheFilterFunction(HTTP_CACHE_DIR.resolve(ConditionalGetCacheFilterFunction.hash(uri + " " + email)));
+			mapper = createDefaultObjectMapper();
+			mapper.setInjectableValues(new InjectableValues.Std().addValue(DSpaceConnection.class, this));
+			client = buildClient();
+			dsRoot = DSRoot.create(this, uri);
+			// The CSRF token and the authn endpoint are independent, and both are
+			// needed to log in
+			// @formatter:off
+			Mono.zip(dsRoot.callCsrfEndpointAsync().thenReturn(true), dsRoot.getAuthnEndpointAsync())
+					.flatMap(tuple -> tuple.getT2().doLoginAsync(email, password))
+					.block();
+			// @formatter:on
+			dsRoot.prefetchSessionLookups();
+			dsRoot.warmUpEndpointsCache();
 		}
 		
 		public DSRoot getDsRoot() {
 			return dsRoot;
 		}
 		
+		/**
+		 * Returns the {@link WebClient} shared by all the requests of this connection
+		 * 
+		 * @return
+		 */
+		public WebClient getClient() {
+			return client;
+		}
+		
+		/**
+		 * Returns a lightweight view of the shared {@link WebClient} that resolves
+		 * relative URIs against <code>baseUri</code>. The returned client reuses the
+		 * connection pool, codecs and filters of this connection.
+		 * 
+		 * @param baseUri
+		 * @return
+		 */
+		public WebClient getClient(URI baseUri) {
+			return client.mutate().baseUrl(baseUri.toString()).build();
+		}
+		
+		/**
+		 * Returns the {@link ObjectMapper} used to serialize the requests' bodies of
+		 * this connection. Objects read with this mapper are bound to this connection.
+		 * 
+		 * @return
+		 */
+		public ObjectMapper getObjectMapper() {
+			return mapper;
+		}
+		
+		/**
+		 * Returns the {@link ObjectMapper} used to deserialize the responses' bodies of
+		 * this connection. Objects read with this mapper are bound to this connection.
+		 * 
+		 * @return
+		 */
+		public ObjectMapper getResponseObjectMapper() {
+			return responseMapper;
+		}
+		
+		/**
+		 * Returns the filter that retries the failed requests of this connection,
+		 * which can also be used to safely retry the creation of new objects
+		 * 
+		 * @return
+		 */
+		public RetryingExchangeFilterFunction getRetryFilter() {
+			return retryFilter;
+		}
+		
+		/**
+		 * Returns the filter that collects the per-endpoint metrics of the requests of
+		 * this connection
+		 * 
+		 * @return
+		 */
+		public MetricsExchangeFilterFunction getMetrics() {
+			return metricsFilter;
+		}
+		
+		/**
+		 * Returns the filter that limits the in-flight requests of this connection
+		 * 
+		 * @return
+		 */
+		public AdaptiveConcurrencyLimitFilterFunction getConcurrencyLimiter() {
+			return concurrencyLimiter;
+		}
+		
+		/**
+		 * Sets the file where the metrics of the requests of this connection are
+		 * written when it is closed
+		 * 
+		 * @param metricsReport
+		 */
+		public void setMetricsReport(Path metricsReport) {
+			this.metricsReport = metricsReport;
+		}
+		
 		public void close() {
+			// Cached responses are written in the background
+			cacheFilter.flush();
 			dsRoot.getAuthnEndpoint().doLogout();
-			exit = true;
+			logger.debug(MessageFormat.format("Endpoints cache statistics: {0} hits, {1} misses", dsRoot.getEndpointsCacheHits(), dsRoot.getEndpointsCacheMisses()));
+			logger.debug(MessageFormat.format("Final concurrency limits: {0}", concurrencyLimiter.getCurrentLimits()));
+			logger.info(MessageFormat.format("Duplicate DSpace reads: {0} GET request(s) sent, {1} served with the response of an identical request", coalescingFilter.getSent(), coalescingFilter.getCoalesced()));
+			logger.info(MessageFormat.format("HTTP cache: {0} response(s) revalidated, {1} downloaded, {2,number,#} bytes saved", cacheFilter.getHits(), cacheFilter.getMisses(), cacheFilter.getSavedBytes()));
+			if (retryFilter.getRetries().isEmpty()) {
+				logger.info("No DSpace requests had to be retried");
+			} else {
+				logger.info(MessageFormat.format("DSpace requests retried: {0} ({1} operation(s) still failed after retrying)", retryFilter.getRetries(), retryFilter.getExhausted()));
+			}
+			if (recordReplayFilter != null) {
+				recordReplayFilter.save();
+			}
+			logger.info(MessageFormat.format("DSpace requests by endpoint:\n{0}", metricsFilter.toTable()));
+			if (metricsReport != null) {
+				try {
+					metricsFilter.write(metricsReport);
+					logger.info(MessageFormat.format("DSpace request metrics written to ''{0}''", metricsReport));
+				} catch (IOException e) {
+					logger.error(MessageFormat.format("Unable to write DSpace request metrics to ''{0}'' ({1})", metricsReport, e.getLocalizedMessage()));
+				}
+			}
+			refreshScheduler.shutdownNow();
+			connectionProvider.dispose();
+		}
+		
+		/**
+		 * Refreshes the JWT of this connection, or logs in again if the token can no
+		 * longer be refreshed. Concurrent callers share a single in-flight
+		 * re-authentication.
+		 * 
+		 * @return
+		 */
+		public Mono<Void> reauthenticateAsync() {
+			// @formatter:off
+			Mono<Void> candidate = Mono.defer(() -> dsRoot.getAuthnEndpoint().refreshAuthAsync().then())
+					.onErrorResume(e -> {
+						logger.warn(MessageFormat.format("Unable to refresh JWT token ({0}), logging in again", e.getLocalizedMessage()));
+						return dsRoot.callCsrfEndpointAsync().then(dsRoot.getAuthnEndpoint().doLoginAsync(email, password));
+					})
+					.doOnSuccess(v -> sessionGeneration.incrementAndGet())
+					.cache();
+			// @formatter:on
+			while (true) {
+				Mono<Void> inflight = reauthentication.get();
+				if (inflight != null) {
+					return inflight;
+				}
+				if (reauthentication.compareAndSet(null, candidate)) {
+					return candidate.doFinally(signal -> reauthentication.compareAndSet(candidate, null));
+				}
+			}
+		}
+		
+		/**
+		 * Schedules the next refresh of the session shortly before the given JWT
+		 * expires
+		 * 
+		 * @param authToken
+		 */
+		private void scheduleRefresh(String authToken) {
+			Duration delay = readTokenExpiry(authToken).map(expiry -> Duration.between(Instant.now(), expiry)).orElse(DEFAULT_TOKEN_LIFETIME).minus(REFRESH_MARGIN);
+			scheduleRefresh(delay.isNegative() ? Duration.ZERO : delay);
+		}
+		
+		private void scheduleRefresh(Duration delay) {
+			if (refreshScheduler.isShutdown()) {
+				return;
+			}
+			logger.debug(MessageFormat.format("Next JWT token refresh in {0} seconds", delay.toSeconds()));
+			ScheduledFuture<?> next = refreshScheduler.schedule(() -> {
+				try {
+					reauthenticateAsync().block();
+				} catch (Exception e) {
+					logger.error(MessageFormat.format("Unable to refresh JWT token ({0})", e.getLocalizedMessage()));
+					scheduleRefresh(REFRESH_RETRY_DELAY);
+				}
+			}, delay.toMillis(), TimeUnit.MILLISECONDS);
+			ScheduledFuture<?> previous = scheduledRefresh.getAndSet(next);
+			if (previous != null) {
+				previous.cancel(false);
+			}
+		}
+		
+		/**
+		 * Reads the <code>exp</code> claim of the given JWT. The signature is not
+		 * verified, since the token is only inspected to know when to refresh it.
+		 * 
+		 * @param authToken
+		 * @return
+		 */
+		private Optional<Instant> readTokenExpiry(String authToken) {
+			try {
+				String[] parts = StringUtils.removeStart(authToken, "Bearer ").trim().split("\\.");
+				JsonNode exp = mapper.readTree(Base64.getUrlDecoder().decode(parts[1])).get("exp");
+				return exp != null && exp.canConvertToLong() ? Optional.of(Instant.ofEpochSecond(exp.asLong())) : Optional.empty();
+			} catch (Exception e) {
+				logger.warn(MessageFormat.format("Unable to read the expiry of the JWT token ({0})", e.getLocalizedMessage()));
+				return Optional.empty();
+			}
+		}
+		
+		private WebClient buildClient() {
+			responseMapper = Jackson2ObjectMapperBuilder.json().build();
+			responseMapper.setInjectableValues(new InjectableValues.Std().addValue(DSpaceConnection.class, this));
+			// Codecs and exchange function are built only once, so that deriving
+			// new clients with a different base URL is cheap
+			ExchangeStrategies strategies = ExchangeStrategies.builder().codecs(codecs -> {
+				codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(mapper, MediaType.APPLICATION_JSON));
+				codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(responseMapper, MediaType.APPLICATION_JSON));
+				codecs.defaultCodecs().maxInMemorySize(MAX_IN_MEMORY_SIZE);
+			}).build();
+			HttpClient httpClient = HttpClient.create(connectionProvider).keepAlive(true);
+			ExchangeFunction exchangeFunction = ExchangeFunctions.create(new ReactorClientHttpConnector(httpClient), strategies);
+			WebClient.Builder builder = WebClient.builder().exchangeFunction(exchangeFunction);
+			boolean replaying = trafficMode != null && trafficMode != RecordReplayExchangeFilterFunction.Mode.RECORD;
+			if (trafficMode != null) {
+				// Must precede the filters that decide which requests reach the server,
+				// see RecordReplayExchangeFilterFunction
+				try {
+					recordReplayFilter = new RecordReplayExchangeFilterFunction(trafficMode, cassette, strategies);
+				} catch (IOException e) {
+					throw new UncheckedIOException(MessageFormat.format("Unable to read cassette ''{0}''", cassette), e);
+				}
+				if (replaying) {
+					// Replayed responses never reach the filters that follow, so they are
+					// measured here instead. Unlike live requests, they include the duplicate
+					// reads that were coalesced when recording
+					builder.filter(metricsFilter);
+				}
+				builder.filter(recordReplayFilter);
+			}
+			builder.filter(coalescingFilter);
+			if (!replaying) {
+				// Metrics are collected for the logical requests, i.e., once duplicate
+				// reads have been coalesced, but including retries and re-authentications
+				builder.filter(metricsFilter);
+			}
+			// @formatter:off
+			return builder
+					.filter(retryFilter)
+					.filter(new ReauthenticationExchangeFilterFunction())
+					.filter(cacheFilter)
+					.filter(concurrencyLimiter)
+					.filter(new CsrfClientExchangeFilterFunction(this::scheduleRefresh))
+					.build();
+			// @formatter:on
+		}
+		
+		/**
+		 * {@link ExchangeFilterFunction} that re-authenticates the session and replays
+		 * the request once when the server answers with a 401 status, e.g., because the
+		 * JWT has expired in the middle of a long operation. It must be placed before
+		 * the {@link CsrfClientExchangeFilterFunction} so that the replayed request
+		 * carries the new tokens.
+		 */
+		private class ReauthenticationExchangeFilterFunction implements ExchangeFilterFunction {
+
+			@Override
+			public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+				if (request.attribute(SKIP_REAUTHENTICATION_ATTRIBUTE).isPresent()) {
+					return next.exchange(request);
+				}
+				long generation = sessionGeneration.get();
+				return next.exchange(request).flatMap(response -> {
+					if (response.statusCode() != HttpStatus.UNAUTHORIZED) {
+						return Mono.just(response);
+					}
+					logger.debug(MessageFormat.format("Got 401 from {0} {1}, re-authenticating", request.method(), request.url()));
+					// If the session has already been re-authenticated by a concurrent
+					// caller since this request was sent, just replay the request
+					Mono<Void> reauthenticated = sessionGeneration.get() != generation ? Mono.empty() : reauthenticateAsync();
+					return response.releaseBody().then(reauthenticated).then(Mono.defer(() -> next.exchange(request)));
+				});
+			}
 		}
 	}
 	
 	public static DSpaceConnection createConnection(URI uri, String email, String password) {
-		return new DSpaceConnection(uri, email, password);
+		return new DSpaceConnection(uri, email, password, null, null);
 	}
 	
-	private static class CsrfClientExchangeFilterFunction implements ExchangeFilterFunction {
+	/**
+	 * Creates a connection that records its HTTP traffic in the given cassette, or
+	 * that replays it from the cassette without contacting the server
+	 * 
+	 * @param uri
+	 * @param email
+	 * @param password
+	 * @param trafficMode
+	 * @param cassette
+	 * @return
+	 */
+	public static DSpaceConnection createConnection(URI uri, String email, String password, RecordReplayExchangeFilterFunction.Mode trafficMode, Path cassette) {
+		return new DSpaceConnection(uri, email, password, trafficMode, cassette);
+	}
+	
+	/**
+	 * Immutable snapshot of the session tokens (XSRF token, JWT and XSRF cookies)
+	 * of a {@link DSpaceConnection}. Since snapshots are never modified, a request
+	 * always sees a consistent set of tokens even if they are rotated concurrently.
+	 */
+	private static class SessionTokens {
+
+		private final String xsrfToken;
+		private final String authToken;
+		private final List<String> xsrfCookies;
+		
+		// Sequence numbers of the requests whose responses set each token
+		private final long xsrfTokenSequence;
+		private final long authTokenSequence;
+		private final long xsrfCookiesSequence;
+
+		private SessionTokens(String xsrfToken, long xsrfTokenSequence, String authToken, long authTokenSequence, List<String> xsrfCookies,
+				long xsrfCookiesSequence) {
+			this.xsrfToken = xsrfToken;
+			this.xsrfTokenSequence = xsrfTokenSequence;
+			this.authToken = authToken;
+			this.authTokenSequence = authTokenSequence;
+			this.xsrfCookies = List.copyOf(xsrfCookies);
+			this.xsrfCookiesSequence = xsrfCookiesSequence;
+		}
+
+		/**
+		 * Returns a snapshot with the tokens received in the response to the request
+		 * with the given sequence number. Tokens not included in the response, or
+		 * already set by the response to a newer request, are kept.
+		 */
+		private SessionTokens merge(Optional<String> newXsrfToken, Optional<String> newAuthToken, Optional<List<String>> newXsrfCookies, long sequence) {
+			boolean setXsrfToken = newXsrfToken.isPresent() && sequence > xsrfTokenSequence;
+			boolean setAuthToken = newAuthToken.isPresent() && sequence > authTokenSequence;
+			boolean setXsrfCookies = newXsrfCookies.isPresent() && sequence > xsrfCookiesSequence;
+			if (!setXsrfToken && !setAuthToken && !setXsrfCookies) {
+				return this;
+			}
+			// @formatter:off
+			return new SessionTokens(
+					setXsrfToken ? newXsrfToken.get() : xsrfToken, setXsrfToken ? sequence : xsrfTokenSequence,
+					setAuthToken ? newAuthToken.get() : authToken, setAuthToken ? sequence : authTokenSequence,
+					setXsrfCookies ? newXsrfCookies.get() : xsrfCookies, setXsrfCookies ? sequence : xsrfCookiesSequence);
+			// @formatter:on
+		}
+	}
 
-		public static final CsrfClientExchangeFilterFunction INSTANCE = new CsrfClientExchangeFilterFunction();
+	/**
+	 * Per-connection {@link ExchangeFilterFunction} that adds the session tokens to
+	 * every request and rotates them when the server sends new ones. Rotation is
+	 * atomic, and each token received in the response to an older request never
+	 * overwrites the same token received in the response to a newer one. Tokens
+	 * are merged one by one, since a response may only carry some of them (e.g.,
+	 * only the JWT, or only the XSRF token).
+	 */
+	private static class CsrfClientExchangeFilterFunction implements ExchangeFilterFunction {
 
 		private static final String AUTHORIZATION_HEADER = "Authorization";
 		private static final String DSPACE_XSRF_TOKEN = "DSPACE-XSRF-TOKEN";
 		private static final String X_XSRF_TOKEN = "X-XSRF-TOKEN";
+		private static final String DSPACE_XSRF_COOKIE = "DSPACE-XSRF-COOKIE";
 
-		private String xsrfToken = "";
-		private String authToken = "";
+		private final AtomicLong requestSequence = new AtomicLong();
+		private final AtomicReference<SessionTokens> tokens = new AtomicReference<>(new SessionTokens("", 0, "", 0, List.of(), 0));
+		private final Consumer<String> authTokenListener;
 
-		private MultiValueMap<String, String> prevCookies = new LinkedMultiValueMap<>();
+		/**
+		 * @param authTokenListener notified every time a new JWT is received
+		 */
+		private CsrfClientExchangeFilterFunction(Consumer<String> authTokenListener) {
+			this.authTokenListener = authTokenListener;
+		}
 
 		@Override
 		public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+			long sequence = requestSequence.incrementAndGet();
+			SessionTokens current = tokens.get();
 			ClientRequest newRequest = ClientRequest.from(request).headers((headers) -> {
-				headers.set(X_XSRF_TOKEN, xsrfToken);
-				headers.set(AUTHORIZATION_HEADER, "Bearer " + authToken);
+				headers.set(X_XSRF_TOKEN, current.xsrfToken);
+				headers.set(AUTHORIZATION_HEADER, "Bearer " + current.authToken);
 			}).cookies((cookies) -> {
-				cookies.addAll(prevCookies);
+				if (!current.xsrfCookies.isEmpty()) {
+					cookies.put(DSPACE_XSRF_COOKIE, current.xsrfCookies);
+				}
 			}).build();
-			return next.exchange(newRequest).flatMap(response -> {
-				xsrfToken = response.headers().header(DSPACE_XSRF_TOKEN).stream().findAny().orElse(xsrfToken);
-				authToken = response.headers().header(AUTHORIZATION_HEADER).stream().findAny().orElse(authToken);
-				List<ResponseCookie> responseCookies = response.cookies().get("DSPACE-XSRF-COOKIE");
-				if (responseCookies != null) {
-					// We iterate and remove empty-value cookies since they may be duplicated
-					// Seems related to issue https://github.com/DSpace/DSpace/issues/9773 
-					prevCookies.put("DSPACE-XSRF-COOKIE", responseCookies
-							.stream()
-							.map(cookie -> cookie.getValue())
-							.filter(v -> StringUtils.isNotEmpty(v))
-							.toList());
+			return next.exchange(newRequest).doOnNext(response -> {
+				Optional<String> xsrfToken = response.headers().header(DSPACE_XSRF_TOKEN).stream().findAny();
+				Optional<String> authToken = response.headers().header(AUTHORIZATION_HEADER).stream().findAny();
+				List<ResponseCookie> responseCookies = response.cookies().get(DSPACE_XSRF_COOKIE);
+				if (xsrfToken.isEmpty() && authToken.isEmpty() && responseCookies == null) {
+					return;
+				}
+				// We iterate and remove empty-value cookies since they may be duplicated
+				// Seems related to issue https://github.com/DSpace/DSpace/issues/9773 
+				Optional<List<String>> xsrfCookies = Optional.ofNullable(responseCookies).map(cookies -> cookies
+						.stream()
+						.map(cookie -> cookie.getValue())
+						.filter(v -> StringUtils.isNotEmpty(v))
+						.toList());
+				SessionTokens updated = tokens.updateAndGet(previous -> previous.merge(xsrfToken, authToken, xsrfCookies, sequence));
+				if (authToken.isPresent() && updated.authTokenSequence == sequence) {
+					authTokenListener.accept(authToken.get());
 				}
-				return Mono.just(response);
 			});
 		}
 	}
 
-	public static WebClient buildClient() {
-		return buildClient(null);
-	}
-
-	public static WebClient buildClient(URI baseUri) {
-		return WebClient.builder().baseUrl(baseUri != null ? baseUri.toString() : null).filter(CsrfClientExchangeFilterFunction.INSTANCE)
-				.codecs(clientDefaultCodecsConfigurer -> {
-					clientDefaultCodecsConfigurer.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(createDefaultObjectMapper(), MediaType.APPLICATION_JSON));
-				})
-				.codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(1024 * 1024))
-				.build();
-	}
-	
 	public static ObjectMapper createDefaultObjectMapper() {
 		ObjectMapper mapper = new ObjectMapper();
 		mapper.setSerializationInclusion(Include.NON_NULL);
@@ -22,9 +22,11 @@ import java.io.Writer;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 
@@ -43,16 +45,18 @@ import com.vladsch.flexmark.util.data.DataHolder;
 
 import es.sistedes.library.manager.CliLauncher.Commands;
 import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
-import es.sistedes.library.manager.dspace.model.DSAuthor;
 import es.sistedes.library.manager.dspace.model.DSBundle;
 import es.sistedes.library.manager.dspace.model.DSCollection;
 import es.sistedes.library.manager.dspace.model.DSCommunity;
+import es.sistedes.library.manager.dspace.model.DSIdentifiable;
 import es.sistedes.library.manager.dspace.model.DSItem;
 import es.sistedes.library.manager.dspace.model.DSProcess;
 import es.sistedes.library.manager.dspace.model.DSProcess.DSParameter;
 import es.sistedes.library.manager.dspace.model.DSPublication;
+import es.sistedes.library.manager.dspace.model.DSRelationship;
 import es.sistedes.library.manager.dspace.model.DSResourcePolicy;
 import es.sistedes.library.manager.dspace.model.DSRoot;
+import es.sistedes.library.manager.dspace.model.ItemRef;
 import es.sistedes.library.manager.dspace.model.RelationshipType;
 import es.sistedes.library.manager.proceedings.model.AbstractProceedingsDocument;
 import es.sistedes.library.manager.proceedings.model.ConferenceData;
@@ -61,6 +65,8 @@ import es.sistedes.library.manager.proceedings.model.Preliminaries;
 import es.sistedes.library.manager.proceedings.model.Signature;
 import es.sistedes.library.manager.proceedings.model.Submission;
 import es.sistedes.library.manager.proceedings.model.Track;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
@@ -102,9 +108,20 @@ class PublishEditionCommand implements Callable<Integer> {
 			+ "collections and items (i.e., registerexternalhandle, filtermedia, generatecitation, generatebibcitation).")
 	private boolean curate = false;
 
+	@Option(names = { "--parallelism" }, paramLabel = "N", description = "Number of submissions to publish concurrently. "
+			+ "Must be 1 when recording or replaying the HTTP traffic. Defaults to 1.")
+	private int parallelism = 1;
+
+	@Option(names = { "--virtual-threads" }, description = "Publish each submission in a virtual thread (requires Java 21+).")
+	private boolean virtualThreads = false;
+
 	private ConferenceData conferenceData;
 	private DSpaceConnection connection;
+	private WorkExecutor workExecutor;
 	private DSRoot dsRoot;
+	// UUIDs of the communities and collections created in this run, which are
+	// restricted all at once when the publications have been processed
+	private final List<String> newContainers = new ArrayList<>();
 
 	@Override
 	public Integer call() throws Exception {
@@ -117,7 +134,7 @@ class PublishEditionCommand implements Callable<Integer> {
 			return 1;
 		}
 
-		connection = DSpaceConnectionManager.createConnection(uri, email, password);
+		connection = mainCmd.createConnection(uri, email, password, parallelism);
 		dsRoot = connection.getDsRoot();
 
 		// Get the top level community
@@ -126,22 +143,33 @@ class PublishEditionCommand implements Callable<Integer> {
 		// Get or create the edition community
 		Edition edition = conferenceData.getEdition();
 		
-		DSCommunity editionCommunity = getEditionCommunity(conferenceCommunity, edition).orElseGet(() -> { 
-			DSCommunity comm = createEditionCommunity(conferenceCommunity, edition);
-			if (private_) {
-				deleteReadResourcePolicies(comm.getUuid());
-			}
-			edition.setInternalHandle(comm.getHandle());
-			edition.setSistedesUuid(comm.getUuid());
-			edition.save();
-			return comm;
-		});
+		DSCommunity editionCommunity;
+		try {
+			editionCommunity = getEditionCommunity(conferenceCommunity, edition).orElseGet(() -> { 
+				DSCommunity comm = createEditionCommunity(conferenceCommunity, edition);
+				newContainers.add(comm.getUuid());
+				edition.setInternalHandle(comm.getHandle());
+				edition.setSistedesUuid(comm.getUuid());
+				edition.save();
+				return comm;
+			});
+
+			try (WorkExecutor executor = new WorkExecutor(parallelism, virtualThreads)) {
+				workExecutor = executor;
 
-		// Publish the preliminaries
-		publishPreliminaries(editionCommunity, edition);
+				// Publish the preliminaries
+				publishPreliminaries(editionCommunity, edition);
 
-		// Publish the papers
-		publishTracks(editionCommunity, edition);
+				// Publish the papers
+				publishTracks(editionCommunity, edition);
+			}
+		} finally {
+			// New items get the default policies of their collection, not its READ
+			// policies, so the containers can be restricted once they are populated
+			if (private_) {
+				deleteReadResourcePolicies(newContainers);
+			}
+		}
 		
 		// @formatter:off
 		if (curate) {
@@ -177,16 +205,16 @@ class PublishEditionCommand implements Callable<Integer> {
 		}
 		// @formatter:on
 
+		connection.close();
+		
 		// Return success
 		return 0;
 	}
 
 	private void publishPreliminaries(DSCommunity editionCommunity, Edition edition) {
-		DSCollection preliminariesCollection = getPreliminariesCollection(editionCommunity, edition).orElseGet(() -> {
+		DSIdentifiable preliminariesCollection = getPreliminariesCollection(editionCommunity, edition).orElseGet(() -> {
 			DSCollection coll = createPreliminariesCollection(editionCommunity, edition);
-			if (private_) {
-				deleteReadResourcePolicies(coll.getUuid());
-			}
+			newContainers.add(coll.getUuid());
 			edition.setPreliminariesSistedesUuid(coll.getUuid());
 			edition.setPreliminariesSistedesHandle(coll.getSistedesIdentifier());
 			edition.setPreliminariesInternalHandle(coll.getHandle());
@@ -195,28 +223,29 @@ class PublishEditionCommand implements Callable<Integer> {
 		});
 		
 
-		// Start iterating over the preliminaries
-		for (Preliminaries prelim : conferenceData.getPreliminaries().values()) {
-			DSPublication dsPublication = null;
-			if (StringUtils.isEmpty(prelim.getSistedesUuid())) {
-				// Create the preliminaries only if it has not been created yet
-				logger.debug(MessageFormat.format("Creating publication for preliminaries ''{0}''", prelim.getTitle()));
-				dsPublication = DSPublication.createPublication(dsRoot, preliminariesCollection, edition, prelim);
-				if (private_) {
-					deleteReadResourcePolicies(dsPublication.getUuid());
-				}
-				logger.info(MessageFormat.format("Created publication for preliminaries ''{0}'' with UUID ''{1}''", dsPublication.getName(), dsPublication.getUuid()));
-				prelim.setSistedesUuid(dsPublication.getUuid());
-				prelim.setInternalHandle(dsPublication.getHandle());
-				prelim.save();
-			} else {
-				dsPublication = dsRoot.getItemsEndpoint().getPublication(prelim.getSistedesUuid()).orElseThrow();
-				logger.info(MessageFormat.format("Publication for prelimiaries ''{0}'' ({1}) already exists with UUID ''{2}''",
-						prelim.getId(), prelim.getTitle(), prelim.getSistedesUuid()));
-			}
+		// Publish the preliminaries, which are independent of each other
+		workExecutor.forEach(conferenceData.getPreliminaries().values(), prelim -> publishPreliminaries(preliminariesCollection, edition, prelim));
+	}
 
-			managePublicationBitstreams(prelim, dsPublication);
+	private void publishPreliminaries(DSIdentifiable preliminariesCollection, Edition edition, Preliminaries prelim) {
+		DSPublication dsPublication = null;
+		if (StringUtils.isEmpty(prelim.getSistedesUuid())) {
+			// Create the preliminaries only if it has not been created yet
+			logger.debug(MessageFormat.format("Creating publication for preliminaries ''{0}''", prelim.getTitle()));
+			dsPublication = DSPublication.createPublication(dsRoot, preliminariesCollection, edition, prelim);
+			logger.info(MessageFormat.format("Created publication for preliminaries ''{0}'' with UUID ''{1}''", dsPublication.getName(), dsPublication.getUuid()));
+			prelim.setSistedesUuid(dsPublication.getUuid());
+			prelim.setInternalHandle(dsPublication.getHandle());
+			prelim.save();
+		} else {
+			dsPublication = dsRoot.getItemsEndpoint().getPublication(prelim.getSistedesUuid(), DSItem.EMBED_BUNDLES).orElseThrow();
+			logger.info(MessageFormat.format("Publication for prelimiaries ''{0}'' ({1}) already exists with UUID ''{2}''",
+					prelim.getId(), prelim.getTitle(), prelim.getSistedesUuid()));
 		}
+		if (private_ && !prelim.isRestricted()) {
+			restrictPublication(prelim, dsPublication);
+		}
+		managePublicationBitstreams(prelim, dsPublication);
 	}
 
 	private void publishTracks(DSCommunity editionCommunity, Edition edition) {
@@ -229,67 +258,76 @@ class PublishEditionCommand implements Callable<Integer> {
 
 			// Get (or create, if it does not exist) the collection which will hold the
 			// publications
-			DSCollection trackCollection = getTrackCollection(editionCommunity, track).orElseGet(() -> {
+			DSIdentifiable trackCollection = getTrackCollection(editionCommunity, track).orElseGet(() -> {
 				DSCollection coll = createTrackCollection(editionCommunity, track);
-				if (private_) {
-					deleteReadResourcePolicies(coll.getUuid());
-				}
+				newContainers.add(coll.getUuid());
 				track.setSistedesUuid(coll.getUuid());
 				track.setInternalHandle(coll.getHandle());
 				track.save();
 				return coll;
 			});
 			
-			// Start iterating over the submissions
-			for (int submissionId : track.getSubmissions()) {
-				Submission submission = conferenceData.getSubmissions().get(submissionId);
-				DSPublication dsPublication;
-				if (StringUtils.isEmpty(submission.getSistedesUuid())) {
-					// Create the submission only if it has not been created yet 
-					logger.debug(MessageFormat.format("Creating publication for ''{0}''", submission.getTitle()));
-					dsPublication = DSPublication.createPublication(dsRoot, trackCollection, edition, submission);
-					if (private_) {
-						deleteReadResourcePolicies(dsPublication.getUuid());
-					}
-					logger.info(MessageFormat.format("Created publication for ''{0}'' with UUID ''{1}''", dsPublication.getName(), dsPublication.getUuid()));
-					submission.setSistedesUuid(dsPublication.getUuid());
-					submission.setInternalHandle(dsPublication.getHandle());
-					submission.save();
-				} else {
-					dsPublication = dsRoot.getItemsEndpoint().getPublication(submission.getSistedesUuid()).orElseThrow();
-					logger.info(MessageFormat.format("Publication for prelimiaries ''{0}'' ({1}) already exists with UUID ''{2}''",
-							submission.getId(), submission.getTitle(), submission.getSistedesUuid()));
-					}
-				manageSubmissionAuthorships(submission, dsPublication);
-				managePublicationBitstreams(submission, dsPublication);
-			}
+			// Publish the submissions, which are independent of each other
+			workExecutor.forEach(track.getSubmissions(), submissionId -> publishSubmission(trackCollection, edition, conferenceData.getSubmissions().get(submissionId)));
 		}
 	}
 
+	private void publishSubmission(DSIdentifiable trackCollection, Edition edition, Submission submission) {
+		DSPublication dsPublication;
+		if (StringUtils.isEmpty(submission.getSistedesUuid())) {
+			// Create the submission only if it has not been created yet 
+			logger.debug(MessageFormat.format("Creating publication for ''{0}''", submission.getTitle()));
+			dsPublication = DSPublication.createPublication(dsRoot, trackCollection, edition, submission);
+			logger.info(MessageFormat.format("Created publication for ''{0}'' with UUID ''{1}''", dsPublication.getName(), dsPublication.getUuid()));
+			submission.setSistedesUuid(dsPublication.getUuid());
+			submission.setInternalHandle(dsPublication.getHandle());
+			submission.save();
+		} else {
+			dsPublication = dsRoot.getItemsEndpoint().getPublication(submission.getSistedesUuid(), DSItem.EMBED_BUNDLES, DSItem.EMBED_RELATIONSHIPS).orElseThrow();
+			logger.info(MessageFormat.format("Publication for prelimiaries ''{0}'' ({1}) already exists with UUID ''{2}''",
+					submission.getId(), submission.getTitle(), submission.getSistedesUuid()));
+		}
+		if (private_ && !submission.isRestricted()) {
+			restrictPublication(submission, dsPublication);
+		}
+		manageSubmissionAuthorships(submission, dsPublication);
+		managePublicationBitstreams(submission, dsPublication);
+	}
+
 	private void manageSubmissionAuthorships(Submission submission, DSPublication dsPublication) {
-		if (dsPublication.getRelationships().size() == submission.getSignatures().size()) {
+		List<DSRelationship> relationships = dsPublication.getRelationships();
+		if (relationships.size() == submission.getSignatures().size()) {
 			logger.info(MessageFormat.format("Authors for submission ''{0}'' ({1}) are already registered, skipping...", submission.getId(), submission.getTitle()));
-		} else if (dsPublication.getRelationships().size() > submission.getSignatures().size()) {
+		} else if (relationships.size() > submission.getSignatures().size()) {
 			throw new RuntimeException(
 					MessageFormat.format("Submission ''{0}'' ({1}) has more relationships than signatures!", submission.getId(), submission.getTitle()));
 		} else {
-			// First clean all existing relationships
-			dsPublication.getRelationships().forEach(r -> {
+			RelationshipType relationshipType;
+			if (submission.getType().getPublicationType() == DSItem.Type.ABSTRACT) {
+				relationshipType = dsRoot.getIsAuthorOfAbstractRelationship();
+			} else if (submission.getType().getPublicationType() == DSItem.Type.PAPER) {
+				relationshipType = dsRoot.getIsAuthorOfPaperRelationship();
+			} else {
+				throw new RuntimeException(MessageFormat.format("Unexpected type of publication ''{0}'' in submission ''{1}''",
+						submission.getType().getPublicationType(), submission.getId()));
+			}
+			// First clean all existing relationships (they are independent, so they can be deleted concurrently)
+			Flux.fromIterable(relationships).flatMap(r -> {
 				logger.info(MessageFormat.format("Deleting authorship relationship with id ''{0,number,#}''", r.getId()));
-				dsRoot.getRelationshipsEndpoint().deleteRelationship(r.getId());
-			});
-			// Now recreate authorships
-			for (Signature signature : submission.getSignatures()) {
+				return dsRoot.getRelationshipsEndpoint().deleteRelationshipAsync(r.getId());
+			}).blockLast();
+			// Retrieve all the authors concurrently, keeping the order of the signatures.
+			// Only their self links are needed, so their metadata is not read
+			List<ItemRef> dsAuthors = Flux.fromIterable(submission.getSignatures()).flatMapSequential(signature -> 
+				dsRoot.getItemsEndpoint().getItemRefAsync(signature.getSistedesUuid()).switchIfEmpty(Mono.error(() -> new NoSuchElementException(
+						MessageFormat.format("Author with UUID ''{0}'' not found for ''{1}''", signature.getSistedesUuid(), signature))))
+			).collectList().block();
+			// Now recreate authorships. Relationships must be created sequentially,
+			// since DSpace sets the authors' order according to the creation order
+			for (int i = 0; i < submission.getSignatures().size(); i++) {
+				Signature signature = submission.getSignatures().get(i);
 				logger.debug(MessageFormat.format("Creating authorship for ''{0}''", signature));
-				DSAuthor dsAuthor = dsRoot.getItemsEndpoint().getAuthor(signature.getSistedesUuid()).orElseThrow();
-				if (submission.getType().getPublicationType() == DSItem.Type.ABSTRACT) {
-					dsRoot.getRelationshipsEndpoint().createRelationship(getIsAuthorOfAbstractRelationship(), dsPublication, dsAuthor);
-				} else if (submission.getType().getPublicationType() == DSItem.Type.PAPER) {
-					dsRoot.getRelationshipsEndpoint().createRelationship(getIsAuthorOfPaperRelationship(), dsPublication, dsAuthor);
-				} else {
-					throw new RuntimeException(MessageFormat.format("Unexpected type of publication ''{0}'' in submission ''{1}''",
-							submission.getType().getPublicationType(), submission.getId()));
-				}
+				dsRoot.getRelationshipsEndpoint().createRelationship(relationshipType, dsPublication, dsAuthors.get(i));
 				logger.info(MessageFormat.format("Created authorship for ''{0}''", signature));
 			}
 		}
@@ -312,9 +350,10 @@ class PublishEditionCommand implements Callable<Integer> {
 			originalFile = pdfFile;
 		}
 
-		if (originalBundle.getBitstreams().size() == 1) {
+		int originalBitstreams = originalBundle.getBitstreams().size();
+		if (originalBitstreams == 1) {
 			logger.info(MessageFormat.format("Main file for submission ''{0}'' ({1}) is already uploaded, skipping...", document.getId(), document.getTitle()));	
-		} else if (originalBundle.getBitstreams().size() > 1) {
+		} else if (originalBitstreams > 1) {
 			throw new RuntimeException(
 					MessageFormat.format("Submission ''{0}'' ({1}) has more than one ORIGINAL bitstream!", document.getId(), document.getTitle()));
 		} else {
@@ -326,9 +365,10 @@ class PublishEditionCommand implements Callable<Integer> {
 		
 		if (otherFile != null) {
 			DSBundle otherBundle = dsPublication.getOtherBundle().orElseGet(() -> dsPublication.createOtherBundle());
-			if (otherBundle.getBitstreams().size() == 1) {
+			int otherBitstreams = otherBundle.getBitstreams().size();
+			if (otherBitstreams == 1) {
 				logger.info(MessageFormat.format("Alternative file for submission ''{0}'' ({1}) is already uploaded, skipping...", document.getId(), document.getTitle()));	
-			} else if (otherBundle.getBitstreams().size() > 1) {
+			} else if (otherBitstreams > 1) {
 				throw new RuntimeException(
 						MessageFormat.format("Submission ''{0}'' ({1}) has more than one OTHER bitstream!", document.getId(), document.getTitle()));
 			} else {
@@ -358,11 +398,11 @@ class PublishEditionCommand implements Callable<Integer> {
 		return editionCommunity;
 	}
 	
-	private Optional<DSCollection> getPreliminariesCollection(DSCommunity editionCommunity, Edition edition) {
+	private Optional<DSIdentifiable> getPreliminariesCollection(DSCommunity editionCommunity, Edition edition) {
 		if (edition.getPreliminariesSistedesUuid() == null) {
 			return Optional.empty();
 		}
-		DSCollection preliminariesCollection = dsRoot.getCollectionsEndpoint().getCollection(edition.getPreliminariesSistedesUuid());
+		ItemRef preliminariesCollection = dsRoot.getCollectionsEndpoint().getCollectionRef(edition.getPreliminariesSistedesUuid());
 		logger.info(MessageFormat.format("Found collection for ''{0}'' with UUID ''{1}''", preliminariesCollection.getName(), preliminariesCollection.getUuid()));
 		return Optional.of(preliminariesCollection);
 	}
@@ -387,11 +427,11 @@ class PublishEditionCommand implements Callable<Integer> {
 		return preliminariesCollection;
 	}
 	
-	private Optional<DSCollection> getTrackCollection(DSCommunity editionCommunity, Track track) {
+	private Optional<DSIdentifiable> getTrackCollection(DSCommunity editionCommunity, Track track) {
 		if (track.getSistedesUuid() == null) {
 			return Optional.empty();
 		}
-		DSCollection trackCollection = dsRoot.getCollectionsEndpoint().getCollection(track.getSistedesUuid());
+		ItemRef trackCollection = dsRoot.getCollectionsEndpoint().getCollectionRef(track.getSistedesUuid());
 		logger.info(MessageFormat.format("Found collection for ''{0}'' with UUID ''{1}''", trackCollection.getName(), trackCollection.getUuid()));
 		return Optional.of(trackCollection);
 	}
@@ -405,19 +445,30 @@ class PublishEditionCommand implements Callable<Integer> {
 
 	private DSCommunity findConferenceTopCommunity() {
 		logger.debug("Retrieving conference community...");
-		Collection<DSCommunity> communities = dsRoot.getCommunitiesEndpoint().getSearchEndpoint().getSearchTopEndpoint().getAll();
-		DSCommunity conferenceCommunity = communities.stream().filter(c -> c.getName().endsWith("(" + conferenceData.getEdition().getAcronym() + ")")).findAny()
-				.orElseThrow();
+		DSCommunity conferenceCommunity = dsRoot.getConferenceCommunity(conferenceData.getEdition().getAcronym());
 		logger.info(MessageFormat.format("Found community for ''{0}'' with UUID ''{1}''", conferenceCommunity.getName(), conferenceCommunity.getUuid()));
 		return conferenceCommunity;
 	}
 
-	private void deleteReadResourcePolicies(String uuid) {
-		List<DSResourcePolicy> policies = dsRoot.getResourcePoliciesEndpoint().getResourcePoliciesFor(uuid);
-		policies.stream().filter(p -> DSResourcePolicy.ACTION_READ.equals(p.getAction())).forEach(p -> {
-			Integer id = p.getId();
-			dsRoot.getResourcePoliciesEndpoint().deleteResourcePolicy(id);
-		});
+	/**
+	 * Deletes the READ policies of the given publication, and records it in the
+	 * given document, so that it is not restricted again in the following runs.
+	 * Bundles inherit the READ policies of the publication, so it must be
+	 * restricted before managing them. Publications created in a previous run that
+	 * failed before restricting them are restricted in the following run.
+	 */
+	private void restrictPublication(AbstractProceedingsDocument document, DSPublication dsPublication) {
+		deleteReadResourcePolicies(List.of(dsPublication.getUuid()));
+		document.setRestricted(true);
+		document.save();
+	}
+
+	private void deleteReadResourcePolicies(Collection<String> uuids) {
+		if (uuids.isEmpty()) {
+			return;
+		}
+		int deleted = dsRoot.getResourcePoliciesEndpoint().deleteResourcePolicies(uuids, DSResourcePolicy.ACTION_READ);
+		logger.debug(MessageFormat.format("Deleted {0} READ policies of {1}", deleted, uuids));
 	}
 
 	private void writePdfFile(String title, File originalFile, File pdfFile) {
@@ -441,26 +492,4 @@ class PublishEditionCommand implements Callable<Integer> {
 			logger.error(MessageFormat.format("Unable to convert ''{0}'' to PDF", originalFile));
 		}
 	}
-
-	/*
-	 * Utility methods to cache the relationship types that are used when creating
-	 * new editions of a conference
-	 */
-	private RelationshipType isAuthorOfPaperRelationship;
-
-	private RelationshipType getIsAuthorOfPaperRelationship() {
-		if (isAuthorOfPaperRelationship == null) {
-			isAuthorOfPaperRelationship = dsRoot.getRelationshipTypesEndpoint().getIsAuthorOfPaperRelationship();
-		}
-		return isAuthorOfPaperRelationship;
-	}
-
-	private RelationshipType isAuthorOfAbstractRelationship;
-
-	private RelationshipType getIsAuthorOfAbstractRelationship() {
-		if (isAuthorOfAbstractRelationship == null) {
-			isAuthorOfAbstractRelationship = dsRoot.getRelationshipTypesEndpoint().getIsAuthorOfAbstractRelationship();
-		}
-		return isAuthorOfAbstractRelationship;
-	}
 }
@@ -18,11 +18,18 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URI;
 import java.text.MessageFormat;
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -43,6 +50,8 @@ import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Option;
 import picocli.CommandLine.ParentCommand;
 import picocli.CommandLine.Spec;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 // @formatter:off
 @Command(name = "sync-authors", 
@@ -58,6 +67,11 @@ class SyncAuthorsCommand implements Callable<Integer> {
 	private static final Double NAME_SIMILARITY_THRESHOLD_WHEN_ID_MATCHES = 50.0d;
 	private static final Double NAME_SIMILARITY_THRESHOLD_WHEN_NAME_MATCHES = 90.0d;
 
+	/**
+	 * Number of ORCIDs or e-mails looked up with a single search query
+	 */
+	private static final int IDENTIFIERS_PER_QUERY = 50;
+
 	private static final Logger logger = LoggerFactory.getLogger(SyncAuthorsCommand.class);
 
 	@ParentCommand
@@ -93,9 +107,53 @@ class SyncAuthorsCommand implements Callable<Integer> {
 			+ "(i.e., refreshsistedesauthortitle)")
 	private boolean curate = false;
 	
+	@Option(names = { "--parallelism" }, paramLabel = "N", description = "Number of authors to synchronize concurrently. In interactive mode, "
+			+ "questions are asked one at a time, in the order they are raised. Must be 1 when recording or replaying the HTTP traffic. "
+			+ "Defaults to 1.")
+	private int parallelism = 1;
+
+	@Option(names = { "--virtual-threads" }, description = "Run each author synchronization in a virtual thread (requires Java 21+).")
+	private boolean virtualThreads = false;
+
+	@Option(names = { "--local-index" }, description = "Download all the authors of the library once, and match the signatures locally "
+			+ "instead of sending search queries for each of them. Only the creations and updates of authors are sent to the library. "
+			+ "The downloaded authors are cached between runs, so that only those modified since the previous run are downloaded again.")
+	private boolean localIndex = false;
+
+	@Option(names = { "--rebuild-index" }, description = "When using a local index, discard the cached one and download all the authors again "
+			+ "(e.g., to forget authors that have been deleted from the library).")
+	private boolean rebuildIndex = false;
+
 	private ConferenceData conferenceData;
 	private DSpaceConnection connection;
 	private DSRoot dsRoot;
+	private AuthorsIndex authorsIndex;
+	// ORCIDs and e-mails of the signatures, looked up in batches beforehand, to
+	// the author having them (if any)
+	private final Map<String, Optional<DSAuthor>> identifiers = new ConcurrentHashMap<>();
+	// UUIDs of the authors created in this run, which are restricted all at once
+	// when all the authors have been synchronized
+	private final Queue<String> newAuthors = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Serializes the interactive questions raised by the authors being
+	 * synchronized concurrently. The lock is fair, so that questions are asked in
+	 * the order they are raised.
+	 */
+	private final ReentrantLock confirmations = new ReentrantLock(true);
+	private BufferedReader stdin;
+
+	SyncAuthorsCommand() {
+	}
+
+	/**
+	 * Creates a command that matches authors against the given library, using
+	 * the given local index (if not <code>null</code>), without running it
+	 */
+	SyncAuthorsCommand(DSRoot dsRoot, AuthorsIndex authorsIndex) {
+		this.dsRoot = dsRoot;
+		this.authorsIndex = authorsIndex;
+	}
 
 	@Override
 	public Integer call() throws Exception {
@@ -112,11 +170,23 @@ class SyncAuthorsCommand implements Callable<Integer> {
 			return 1;
 		}
 		
-		connection = DSpaceConnectionManager.createConnection(uri, email, password);
+		connection = mainCmd.createConnection(uri, email, password, parallelism);
 		dsRoot = connection.getDsRoot();
 		
-		for (Author author : conferenceData.getAuthors().values()) {
-			syncAuthor(author);
+		if (localIndex) {
+			authorsIndex = AuthorsIndex.create(dsRoot, AuthorsIndex.getCacheFile(uri, email), rebuildIndex);
+		} else {
+			lookupIdentifiers();
+		}
+		try (WorkExecutor executor = new WorkExecutor(parallelism, virtualThreads)) {
+			executor.forEach(conferenceData.getAuthors().values(), this::syncAuthor);
+		} finally {
+			if (private_) {
+				deleteReadResourcePolicies(newAuthors);
+			}
+			if (authorsIndex != null) {
+				authorsIndex.save();
+			}
 		}
 		
 		// @formatter:off
@@ -125,6 +195,8 @@ class SyncAuthorsCommand implements Callable<Integer> {
 		}
 		// @formatter:on
 		
+		connection.close();
+		
 		// Return success
 		return 0;
 	}
@@ -140,7 +212,7 @@ class SyncAuthorsCommand implements Callable<Integer> {
 		dsAuthorOpt = findAuthor(author);
 		if (dsAuthorOpt.isPresent()) {
 			author.setSistedesUuid(dsAuthorOpt.get().getUuid());
-			if (StringUtils.equals(dsAuthorOpt.get().getOrcid(), author.getOrcid())) {
+			if (dsAuthorOpt.get().hasOrcid(author.getOrcid())) {
 				logger.info(MessageFormat.format("Author with UUID ''{0}'' found with ORCID match for ''{1}''", author.getSistedesUuid(), author));
 			} else {
 				logger.info(MessageFormat.format("Author with UUID ''{0}'' found with heuristic match for ''{1}''", author.getSistedesUuid(), author));
@@ -156,8 +228,9 @@ class SyncAuthorsCommand implements Callable<Integer> {
 				// No existing author has been found, we must create it
 				logger.debug(MessageFormat.format("Creating Author for ''{0}''...", author));
 				DSAuthor dsAuthor = DSAuthor.createAuthor(dsRoot, author);
-				if (private_) {
-					deleteReadResourcePolicies(dsAuthor.getUuid());
+				newAuthors.add(dsAuthor.getUuid());
+				if (authorsIndex != null) {
+					authorsIndex.put(dsAuthor);
 				}
 				author.setSistedesUuid(dsAuthor.getUuid());
 				author.save();
@@ -165,64 +238,24 @@ class SyncAuthorsCommand implements Callable<Integer> {
 			} else {
 				// We may update an existing author
 				try {
-					boolean updated = false;
 					logger.debug(MessageFormat.format("Updating Author for ''{0}''...", author));
 					DSAuthor dsAuthor = dsAuthorOpt.get();
-					for (Signature signature : author.getSignatures()) {
-						// @formatter:off
-						// Always replace the "main" author name by the latest signature name
-						// if they do not match.
-						// This is because we consider that the author will maintain his/her
-						// latest signature in future editions
-						if (!StringUtils.equals(dsAuthor.getFullName(), signature.getFullName())) {
-							updated = true;
-							// Set the current name as a variant
-							dsAuthor.addNameVariant(dsAuthor.getFullName());
-							// Update the name
-							dsAuthor.setGivenName(signature.getGivenName());
-							dsAuthor.setFamilyName(signature.getFamilyName());
-							dsAuthor.setName(dsAuthor.getFullName());
-							// Make sure that the name we just set is not listed as a variant
-							// which was added in the past
-							dsAuthor.setNameVariants(dsAuthor.getNameVariants().stream().filter(variant -> !variant.equals(dsAuthor.getFullName())).toList());
-						} else if (!StringUtils.equals(
-										StringUtils.stripAccents(dsAuthor.getFullName().toLowerCase()), 
-										StringUtils.stripAccents(signature.getFullName().toLowerCase()))
-									&& !dsAuthor.getNameVariants().contains(signature.getFullName())) {
-							updated = true;
-							dsAuthor.addNameVariant(signature.getFullName());
-						}
-						// @formatter:on
-						// If all existing affiliations are different (90% or less) to the one in the signature, add it to the list
-						// Do the computation ignoring casing, accents, punctuation marks, and normalizing the spaces
-						if (dsAuthor.getAffiliations().stream().allMatch(aff -> { 
-							String affiliation1 = StringUtils.normalizeSpace(StringUtils.stripAccents(aff).replaceAll("[^\\p{IsLatin}]", "")).toLowerCase();
-							String affiliation2 = StringUtils.normalizeSpace(StringUtils.stripAccents(signature.getFullAffiliation()).replaceAll("[^\\p{IsLatin}]", "")).toLowerCase();
-							return (SimpleNameMatcher.compareNamesSafe(affiliation1, affiliation2) <= 90);
-							})) {
-							updated = true;
-							dsAuthor.addAffiliation(signature.getFullAffiliation().trim());
-						}
-						// Add the e-mail if it doesn't exist yet
-						if (signature.getEmail() != null
-								&& !dsAuthor.getEmails().stream().map(em -> em.toLowerCase()).toList().contains(signature.getEmail().toLowerCase().trim())) {
-							updated = true;
-							dsAuthor.addEmail(signature.getEmail().toLowerCase().trim());
-						}
-						// Add the web if it doesn't exist yet
-						if (signature.getWeb() != null 
-								&& !dsAuthor.getWebs().stream().map(web -> web.toLowerCase()).toList().contains(signature.getWeb().toLowerCase().trim())) {
-							updated = true;
-							dsAuthor.addWeb(signature.getWeb().toLowerCase().trim());
-						}
-						// Add the ORCID if it doesn't exist yet
-						if (signature.getOrcid() != null && StringUtils.isBlank(dsAuthor.getOrcid())) {
-							updated = true;
-							dsAuthor.setOrcid(signature.getOrcid());
+					boolean updated = mergeSignatures(dsAuthor, author);
+					if (updated && authorsIndex != null) {
+						// Authors read from the cache of the local index are incomplete, so they
+						// are retrieved (only when they must be updated) before updating them
+						DSAuthor complete = authorsIndex.resolve(dsAuthor).orElseThrow(() -> new NoSuchElementException(
+								MessageFormat.format("Author with UUID ''{0}'' no longer exists", author.getSistedesUuid())));
+						if (complete != dsAuthor) {
+							dsAuthor = complete;
+							mergeSignatures(dsAuthor, author);
 						}
 					}
 					if (updated) {
 						dsAuthor.save();
+						if (authorsIndex != null) {
+							authorsIndex.put(dsAuthor);
+						}
 						logger.info(MessageFormat.format("Updated Author for ''{0}''", author));
 					} else {
 						logger.info(MessageFormat.format("No updates are required for Author ''{0}''", author));
@@ -239,17 +272,84 @@ class SyncAuthorsCommand implements Callable<Integer> {
 		}
 	}
 
-	private Optional<DSAuthor> findAuthor(Author author) {
+	/**
+	 * Merges the information of the signatures of <code>author</code> (names,
+	 * affiliations, e-mails, webs and ORCID) into <code>dsAuthor</code>
+	 *
+	 * @return whether <code>dsAuthor</code> has been modified
+	 */
+	private boolean mergeSignatures(DSAuthor dsAuthor, Author author) {
+		boolean updated = false;
+		for (Signature signature : author.getSignatures()) {
+			// @formatter:off
+			// Always replace the "main" author name by the latest signature name
+			// if they do not match.
+			// This is because we consider that the author will maintain his/her
+			// latest signature in future editions
+			if (!StringUtils.equals(dsAuthor.getFullName(), signature.getFullName())) {
+				updated = true;
+				// Set the current name as a variant
+				dsAuthor.addNameVariant(dsAuthor.getFullName());
+				// Update the name
+				dsAuthor.setGivenName(signature.getGivenName());
+				dsAuthor.setFamilyName(signature.getFamilyName());
+				dsAuthor.setName(dsAuthor.getFullName());
+				// Make sure that the name we just set is not listed as a variant
+				// which was added in the past
+				dsAuthor.setNameVariants(dsAuthor.getNameVariants().stream().filter(variant -> !variant.equals(dsAuthor.getFullName())).toList());
+			} else if (!StringUtils.equals(
+							StringUtils.stripAccents(dsAuthor.getFullName().toLowerCase()), 
+							StringUtils.stripAccents(signature.getFullName().toLowerCase()))
+						&& !dsAuthor.getNameVariants().contains(signature.getFullName())) {
+				updated = true;
+				dsAuthor.addNameVariant(signature.getFullName());
+			}
+			// @formatter:on
+			// If all existing affiliations are different (90% or less) to the one in the signature, add it to the list
+			// Do the computation ignoring casing, accents, punctuation marks, and normalizing the spaces
+			if (dsAuthor.getAffiliations().stream().allMatch(aff -> { 
+				String affiliation1 = StringUtils.normalizeSpace(StringUtils.stripAccents(aff).replaceAll("[^\\p{IsLatin}]", "")).toLowerCase();
+				String affiliation2 = StringUtils.normalizeSpace(StringUtils.stripAccents(signature.getFullAffiliation()).replaceAll("[^\\p{IsLatin}]", "")).toLowerCase();
+				return (SimpleNameMatcher.compareNamesSafe(affiliation1, affiliation2) <= 90);
+				})) {
+				updated = true;
+				dsAuthor.addAffiliation(signature.getFullAffiliation().trim());
+			}
+			// Add the e-mail if it doesn't exist yet
+			if (signature.getEmail() != null
+					&& !dsAuthor.getEmails().stream().map(em -> em.toLowerCase()).toList().contains(signature.getEmail().toLowerCase().trim())) {
+				updated = true;
+				dsAuthor.addEmail(signature.getEmail().toLowerCase().trim());
+			}
+			// Add the web if it doesn't exist yet
+			if (signature.getWeb() != null 
+					&& !dsAuthor.getWebs().stream().map(web -> web.toLowerCase()).toList().contains(signature.getWeb().toLowerCase().trim())) {
+				updated = true;
+				dsAuthor.addWeb(signature.getWeb().toLowerCase().trim());
+			}
+			// Add the ORCID if it doesn't exist yet
+			if (signature.getOrcid() != null && StringUtils.isBlank(dsAuthor.getOrcid())) {
+				updated = true;
+				dsAuthor.setOrcid(signature.getOrcid());
+			}
+		}
+		return updated;
+	}
+
+	Optional<DSAuthor> findAuthor(Author author) {
 		Optional<DSAuthor> result = null;
+		// Signatures of the same author usually share their ORCID, e-mail or name,
+		// so each distinct query is only sent once
+		Map<String, Optional<DSAuthor>> searches = new HashMap<>();
 		for (Signature signature : author.getSignatures()) {
 			// First, try to search by ORCID
-			result = searchAuthorByOrcid(signature);
+			result = searchAuthorByOrcid(signature, searches);
 			// Second, try to search by e-mail
 			if (!result.isPresent())
-				result = searchAuthorByEmail(signature);
+				result = searchAuthorByEmail(signature, searches);
 			// Next, if not find, try by full name
 			if (!result.isPresent())
-				result = searchAuthorByName(signature);
+				result = searchAuthorByName(signature, searches);
 			// Still not found, continue and try with another signature...
 			if (!result.isPresent())
 				continue;
@@ -260,14 +360,14 @@ class SyncAuthorsCommand implements Callable<Integer> {
 		return result;
 	}
 
-	private Optional<DSAuthor> searchAuthorByOrcid(Signature signature) {
+	private Optional<DSAuthor> searchAuthorByOrcid(Signature signature, Map<String, Optional<DSAuthor>> searches) {
 		if (StringUtils.isEmpty(signature.getOrcid())) {
 			return Optional.empty();
 		}
-		Optional<DSAuthor> result = dsRoot.searchAuthor(signature.getOrcid());
+		Optional<DSAuthor> result = searches.computeIfAbsent(signature.getOrcid(), this::lookupAuthorByOrcid);
 		if (result.isPresent()) {
 			DSAuthor dsAuthor = result.get();
-			if (StringUtils.equals(dsAuthor.getOrcid(), signature.getOrcid())) {
+			if (dsAuthor.hasOrcid(signature.getOrcid())) {
 				// @formatter:off
 				Double maxSimilarity = getMaxSignatureNameSimilarity(signature, dsAuthor);
 				if (maxSimilarity > NAME_SIMILARITY_THRESHOLD_WHEN_ID_MATCHES) {
@@ -284,8 +384,7 @@ class SyncAuthorsCommand implements Callable<Integer> {
 									+ " - Found author:       {3}", 
 									maxSimilarity, NAME_SIMILARITY_THRESHOLD_WHEN_ID_MATCHES, signature, dsAuthor);
 					if (interactive) {
-						System.out.println(message);
-						if (readConfirmation("Is it a match?")) {
+						if (readConfirmation(message, "Is it a match?")) {
 							logger.info(MessageFormat.format(
 									"Approximate match found with similarity ({0}%) below the threshold ({1}%), but manually overriden:\n"
 											+ " - Searched signature: {2}\n"
@@ -303,11 +402,11 @@ class SyncAuthorsCommand implements Callable<Integer> {
 		return Optional.empty();
 	}
 	
-	private Optional<DSAuthor> searchAuthorByEmail(Signature signature) {
+	private Optional<DSAuthor> searchAuthorByEmail(Signature signature, Map<String, Optional<DSAuthor>> searches) {
 		if (StringUtils.isEmpty(signature.getEmail())) {
 			return Optional.empty();
 		}
-		Optional<DSAuthor> result = dsRoot.searchAuthor(signature.getEmail());
+		Optional<DSAuthor> result = searches.computeIfAbsent(signature.getEmail(), this::lookupAuthorByEmail);
 		if (result.isPresent()) {
 			DSAuthor dsAuthor = result.get();
 			if (dsAuthor.getEmails().contains(signature.getEmail().toLowerCase())) {
@@ -327,8 +426,7 @@ class SyncAuthorsCommand implements Callable<Integer> {
 									+ " - Found author:       {3}", 
 									maxSimilarity, NAME_SIMILARITY_THRESHOLD_WHEN_ID_MATCHES, signature, dsAuthor);
 					if (interactive) {
-						System.out.println(message);
-						if (readConfirmation("Is it a match?")) {
+						if (readConfirmation(message, "Is it a match?")) {
 							logger.info(MessageFormat.format(
 									"Approximate match found with similarity ({0}%) below the threshold ({1}%), but manually overriden:\n"
 											+ " - Searched signature: {2}\n"
@@ -346,11 +444,11 @@ class SyncAuthorsCommand implements Callable<Integer> {
 		return Optional.empty();
 	}
 
-	private Optional<DSAuthor> searchAuthorByName(Signature signature) {
+	private Optional<DSAuthor> searchAuthorByName(Signature signature, Map<String, Optional<DSAuthor>> searches) {
 		if (StringUtils.isEmpty(signature.getFullName())) {
 			return Optional.empty();
 		}
-		Optional<DSAuthor> result = dsRoot.searchAuthor(signature.getFullName());
+		Optional<DSAuthor> result = searches.computeIfAbsent(signature.getFullName(), this::lookupAuthorByName);
 		if (result.isPresent()) {
 			DSAuthor dsAuthor = result.get();
 			// @formatter:off
@@ -369,8 +467,7 @@ class SyncAuthorsCommand implements Callable<Integer> {
 								+ " - Found author:       {3}", 
 								maxSimilarity, NAME_SIMILARITY_THRESHOLD_WHEN_NAME_MATCHES, signature, dsAuthor);
 				if (interactive) {
-					System.out.println(message);
-					if (readConfirmation("Is it a match?")) {
+					if (readConfirmation(message, "Is it a match?")) {
 						logger.info(MessageFormat.format(
 								"Approximate match found with similarity ({0}%) below the threshold ({1}%), but manually overriden:\n"
 										+ " - Searched signature: {2}\n"
@@ -387,13 +484,88 @@ class SyncAuthorsCommand implements Callable<Integer> {
 		return Optional.empty();
 	}
 
+	/**
+	 * Looks up the ORCIDs and e-mails of the signatures of the authors that have
+	 * not been processed yet, {@value #IDENTIFIERS_PER_QUERY} per search query,
+	 * instead of sending a search query for each of them
+	 */
+	private void lookupIdentifiers() {
+		long start = System.currentTimeMillis();
+		// @formatter:off
+		List<Signature> signatures = conferenceData.getAuthors().values().stream()
+				.filter(author -> author.getSistedesUuid() == null)
+				.flatMap(author -> author.getSignatures().stream())
+				.toList();
+		List<String> orcids = signatures.stream().map(Signature::getOrcid).filter(StringUtils::isNotBlank).distinct().toList();
+		List<String> emails = signatures.stream().map(Signature::getEmail).filter(StringUtils::isNotBlank).distinct().toList();
+		Flux.merge(
+				lookupIdentifiers(orcids, dsRoot::findAuthorsByOrcidAsync),
+				lookupIdentifiers(emails, dsRoot::findAuthorsByEmailAsync))
+			.blockLast();
+		// @formatter:on
+		logger.info(MessageFormat.format("Looked up {0,number,#} ORCID(s) and {1,number,#} e-mail(s), {2,number,#} found, in {3,number,#} ms", orcids.size(),
+				emails.size(), identifiers.values().stream().filter(Optional::isPresent).count(), System.currentTimeMillis() - start));
+	}
+
+	private Flux<Map<String, DSAuthor>> lookupIdentifiers(List<String> values, Function<List<String>, Mono<Map<String, DSAuthor>>> finder) {
+		// @formatter:off
+		return Flux.fromIterable(values)
+				.buffer(IDENTIFIERS_PER_QUERY)
+				.flatMap(identifiersBatch -> finder.apply(identifiersBatch)
+						.doOnNext(found -> identifiersBatch.forEach(identifier -> identifiers.put(identifier, Optional.ofNullable(found.get(identifier))))),
+						Math.max(1, parallelism));
+		// @formatter:on
+	}
+
+	private Optional<DSAuthor> lookupAuthorByOrcid(String orcid) {
+		if (authorsIndex != null) {
+			return authorsIndex.findByOrcid(orcid);
+		}
+		Optional<DSAuthor> found = identifiers.get(orcid);
+		return found != null ? found : dsRoot.searchAuthor(orcid);
+	}
+
+	private Optional<DSAuthor> lookupAuthorByEmail(String email) {
+		if (authorsIndex != null) {
+			return authorsIndex.findByEmail(email);
+		}
+		Optional<DSAuthor> found = identifiers.get(email);
+		return found != null ? found : dsRoot.searchAuthor(email);
+	}
+
+	private Optional<DSAuthor> lookupAuthorByName(String fullName) {
+		if (authorsIndex == null) {
+			return dsRoot.searchAuthor(fullName);
+		}
+		// In interactive mode, matches below the threshold may still be confirmed
+		return authorsIndex.findByName(fullName, interactive ? 0.0d : NAME_SIMILARITY_THRESHOLD_WHEN_NAME_MATCHES);
+	}
+
+	/**
+	 * Shows <code>context</code> and asks <code>message</code> until a valid answer
+	 * is given. Questions raised concurrently wait for their turn, so that each
+	 * one is shown together with its context.
+	 */
+	private boolean readConfirmation(String context, String message) {
+		confirmations.lock();
+		try {
+			if (stdin == null) {
+				// A single reader, since a reader may buffer more than one line
+				stdin = new BufferedReader(new InputStreamReader(System.in));
+			}
+			System.out.println(context);
+			return readConfirmation(message);
+		} finally {
+			confirmations.unlock();
+		}
+	}
+
 	private boolean readConfirmation(String message) {
 		Toolkit.getDefaultToolkit().beep();
-		BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
 		try {
 			do {
 				System.out.print(message + " [y/N]: ");
-				switch (reader.readLine()) {
+				switch (stdin.readLine()) {
 				case "Y":
 				case "y":
 					return true;
@@ -409,19 +581,15 @@ class SyncAuthorsCommand implements Callable<Integer> {
 	}
 
 	private Double getMaxSignatureNameSimilarity(Signature signature, DSAuthor dsAuthor) {
-		List<String> allAuthorNames = new ArrayList<>(dsAuthor.getNameVariants());
-		allAuthorNames.add(dsAuthor.getFullName());
-		Optional<Double> maxSimilarity = allAuthorNames.stream().map(variant -> SimpleNameMatcher.compareNamesSafe(signature.getFullName(), variant))
-				.max(Comparator.naturalOrder());
-		return maxSimilarity.orElse(0.0d);
+		return AuthorsIndex.getMaxNameSimilarity(signature.getFullName(), dsAuthor);
 	}
 	
 
-	private void deleteReadResourcePolicies(String uuid) {
-		List<DSResourcePolicy> policies = dsRoot.getResourcePoliciesEndpoint().getResourcePoliciesFor(uuid);
-		policies.stream().filter(p -> DSResourcePolicy.ACTION_READ.equals(p.getAction())).forEach(p -> {
-			Integer id = p.getId();
-			dsRoot.getResourcePoliciesEndpoint().deleteResourcePolicy(id);
-		});
+	private void deleteReadResourcePolicies(Collection<String> uuids) {
+		if (uuids.isEmpty()) {
+			return;
+		}
+		int deleted = dsRoot.getResourcePoliciesEndpoint().deleteResourcePolicies(uuids, DSResourcePolicy.ACTION_READ);
+		logger.info(MessageFormat.format("Deleted {0} READ policies of {1} new author(s)", deleted, uuids.size()));
 	}
 }
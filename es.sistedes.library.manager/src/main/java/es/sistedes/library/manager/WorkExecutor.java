@@ -0,0 +1,164 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs independent units of work (e.g., the synchronization of an author, or
+ * the publication of a submission) concurrently, using the blocking DSpace
+ * client. At most <code>parallelism</code> units run at the same time. When
+ * requested, and if the JVM supports them (Java 21+), each unit runs on its own
+ * virtual thread; otherwise, a pool of platform threads is used.
+ *
+ * With a parallelism of 1, units run sequentially on the calling thread,
+ * exactly as a plain loop would do.
+ */
+class WorkExecutor implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(WorkExecutor.class);
+
+	private final int parallelism;
+	private final Semaphore permits;
+	private final ExecutorService executor;
+
+	/**
+	 * @param parallelism    maximum number of units of work running concurrently
+	 * @param virtualThreads whether to run the units on virtual threads, if
+	 *                       available
+	 */
+	WorkExecutor(int parallelism, boolean virtualThreads) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1");
+		}
+		this.parallelism = parallelism;
+		this.permits = new Semaphore(parallelism);
+		if (parallelism == 1) {
+			executor = null;
+		} else if (virtualThreads) {
+			executor = newVirtualThreadPerTaskExecutor().orElseGet(() -> {
+				logger.warn("Virtual threads are not available in this JVM (Java 21+ is required), using platform threads instead");
+				return newPlatformThreadPool(parallelism);
+			});
+		} else {
+			executor = newPlatformThreadPool(parallelism);
+		}
+	}
+
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * Runs <code>unit</code> for each of the given items, and waits until all of
+	 * them have finished. If a unit fails, no new units are started, and the
+	 * failure is rethrown once the running units have finished.
+	 *
+	 * @param <T>
+	 * @param items
+	 * @param unit
+	 */
+	public <T> void forEach(Iterable<T> items, Consumer<T> unit) {
+		if (executor == null) {
+			items.forEach(unit);
+			return;
+		}
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		List<Future<?>> futures = new ArrayList<>();
+		try {
+			for (T item : items) {
+				permits.acquire();
+				if (failure.get() != null) {
+					permits.release();
+					break;
+				}
+				futures.add(executor.submit(() -> {
+					try {
+						unit.accept(item);
+					} catch (Throwable t) {
+						if (!failure.compareAndSet(null, t)) {
+							failure.get().addSuppressed(t);
+						}
+					} finally {
+						permits.release();
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			futures.forEach(future -> future.cancel(true));
+			throw new RuntimeException("Interrupted while waiting for the units of work to finish", e);
+		} catch (ExecutionException e) {
+			// Units never throw, failures are collected instead
+			throw new IllegalStateException(e);
+		}
+		Throwable t = failure.get();
+		if (t instanceof RuntimeException e) {
+			throw e;
+		} else if (t instanceof Error e) {
+			throw e;
+		} else if (t != null) {
+			throw new RuntimeException(t);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (executor != null) {
+			executor.shutdown();
+			try {
+				executor.awaitTermination(1, TimeUnit.MINUTES);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private static ExecutorService newPlatformThreadPool(int parallelism) {
+		AtomicInteger count = new AtomicInteger();
+		return Executors.newFixedThreadPool(parallelism, runnable -> {
+			Thread thread = new Thread(runnable, MessageFormat.format("work-{0}", count.incrementAndGet()));
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Looks up <code>Executors.newVirtualThreadPerTaskExecutor()</code>
+	 * reflectively, since this project still targets Java 17
+	 */
+	private static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+		try {
+			return Optional.of((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null));
+		} catch (ReflectiveOperationException e) {
+			return Optional.empty();
+		}
+	}
+}
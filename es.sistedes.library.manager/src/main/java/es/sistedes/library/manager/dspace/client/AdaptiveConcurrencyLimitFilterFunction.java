@@ -0,0 +1,298 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.client;
+
+import java.net.URI;
+import java.text.MessageFormat;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.publisher.SignalType;
+
+/**
+ * {@link ExchangeFilterFunction} that limits the number of in-flight requests
+ * sent to the DSpace server. Requests are grouped by endpoint class (e.g.,
+ * <code>core/items</code> or <code>discover/search</code>), and each class has
+ * its own limit, which is adapted using an AIMD (additive increase,
+ * multiplicative decrease) policy: the limit grows slowly while responses are
+ * fast, and it is reduced as soon as the latency grows well above the observed
+ * baseline or the server answers with 429 or 503. Requests exceeding the limit
+ * are queued until a slot is released.
+ * <p>
+ * A slot is held until the body of the response has been fully consumed or
+ * released, so that the limit also applies to the transfer of large bodies, and
+ * latencies are measured up to the last byte. Thus, the body of every response
+ * must be either consumed or released, as the {@link WebClient} does.
+ */
+public class AdaptiveConcurrencyLimitFilterFunction implements ExchangeFilterFunction {
+
+	private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimitFilterFunction.class);
+
+	private static final int INITIAL_LIMIT = 4;
+	// Streamed responses hold their slot while their elements trigger nested
+	// requests to the same endpoint class, so at least two slots are always kept
+	private static final int MIN_LIMIT = 2;
+	// Latencies above this factor of the baseline are considered a sign of overload
+	private static final double LATENCY_TOLERANCE = 2.0;
+	// Latencies below this threshold are never considered a sign of overload
+	private static final long MIN_OVERLOAD_LATENCY_NANOS = 50_000_000L;
+	private static final double BACKOFF_RATIO = 0.75;
+	// The baseline slowly follows the recent latencies, so that it can recover
+	// from a single unusually fast response
+	private static final double BASELINE_DRIFT = 0.01;
+
+	private final int maxLimit;
+	private final Map<String, Limiter> limiters = new ConcurrentHashMap<>();
+
+	/**
+	 * @param maxLimit maximum number of in-flight requests per endpoint class
+	 */
+	public AdaptiveConcurrencyLimitFilterFunction(int maxLimit) {
+		this.maxLimit = maxLimit;
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		Limiter limiter = limiters.computeIfAbsent(getEndpointClass(request.url()), Limiter::new);
+		// @formatter:off
+		return limiter.acquire().flatMap(permit -> next.exchange(request)
+				.map(response -> response.mutate()
+						.body(body -> body.doFinally(signal -> permit.onCompletion(response.statusCode().value(), signal)))
+						.build())
+				.doOnError(permit::onError)
+				.doOnCancel(permit::release));
+		// @formatter:on
+	}
+
+	/**
+	 * @return the limit of every endpoint class when no response has been
+	 *         received yet
+	 */
+	public int getInitialLimit() {
+		return INITIAL_LIMIT;
+	}
+
+	/**
+	 * @return the maximum number of in-flight requests per endpoint class
+	 */
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	/**
+	 * Returns the current limit of each endpoint class
+	 * 
+	 * @return
+	 */
+	public Map<String, Integer> getCurrentLimits() {
+		Map<String, Integer> result = new TreeMap<>();
+		limiters.forEach((endpointClass, limiter) -> result.put(endpointClass, limiter.getLimit()));
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Returns the endpoint class of a given request {@link URI}, i.e., the first
+	 * two path segments after <code>api</code>
+	 * 
+	 * @param uri
+	 * @return
+	 */
+	private static String getEndpointClass(URI uri) {
+		String[] segments = uri.getPath().split("/");
+		int start = 0;
+		for (int i = 0; i < segments.length; i++) {
+			if ("api".equals(segments[i])) {
+				start = i + 1;
+				break;
+			}
+		}
+		StringBuilder result = new StringBuilder();
+		for (int i = start; i < segments.length && i < start + 2; i++) {
+			if (!segments[i].isEmpty()) {
+				result.append(result.length() > 0 ? "/" : "").append(segments[i]);
+			}
+		}
+		return result.toString();
+	}
+
+	private class Limiter {
+
+		private final String endpointClass;
+		private final Deque<Waiter> waiting = new ArrayDeque<>();
+		private double limit = INITIAL_LIMIT;
+		private int inFlight = 0;
+		private long baselineNanos = Long.MAX_VALUE;
+		private long lastBackoffNanos = 0;
+
+		private Limiter(String endpointClass) {
+			this.endpointClass = endpointClass;
+		}
+
+		private synchronized int getLimit() {
+			return (int) limit;
+		}
+
+		private Mono<Permit> acquire() {
+			return Mono.create(sink -> {
+				Waiter waiter = new Waiter(sink);
+				sink.onCancel(waiter::cancel);
+				synchronized (this) {
+					if (waiter.cancelled) {
+						return;
+					}
+					if (inFlight >= (int) limit) {
+						waiting.add(waiter);
+						return;
+					}
+					inFlight++;
+					waiter.permit = new Permit(this);
+				}
+				sink.success(waiter.permit);
+			});
+		}
+
+		private void release() {
+			synchronized (this) {
+				inFlight--;
+			}
+			drain();
+		}
+
+		/**
+		 * Grants slots to the waiting requests while the limit allows it
+		 */
+		private void drain() {
+			while (true) {
+				Waiter waiter;
+				synchronized (this) {
+					if (inFlight >= (int) limit || waiting.isEmpty()) {
+						return;
+					}
+					waiter = waiting.poll();
+					inFlight++;
+					waiter.permit = new Permit(this);
+				}
+				waiter.sink.success(waiter.permit);
+			}
+		}
+
+		/**
+		 * A request waiting for a slot
+		 */
+		private class Waiter {
+
+			private final MonoSink<Permit> sink;
+			private Permit permit;
+			private boolean cancelled;
+
+			private Waiter(MonoSink<Permit> sink) {
+				this.sink = sink;
+			}
+
+			private void cancel() {
+				Permit granted;
+				synchronized (Limiter.this) {
+					cancelled = true;
+					waiting.remove(this);
+					granted = permit;
+				}
+				// The request may have been cancelled right after being granted
+				// a slot, in that case the slot must be returned
+				if (granted != null) {
+					granted.release();
+				}
+			}
+		}
+
+		private void onSample(long latencyNanos, boolean overloaded) {
+			int previous, current;
+			synchronized (this) {
+				previous = (int) limit;
+				baselineNanos = latencyNanos < baselineNanos ? latencyNanos : baselineNanos + (long) ((latencyNanos - baselineNanos) * BASELINE_DRIFT);
+				boolean slow = latencyNanos > MIN_OVERLOAD_LATENCY_NANOS && latencyNanos > baselineNanos * LATENCY_TOLERANCE;
+				long now = System.nanoTime();
+				if (overloaded || slow) {
+					// Back off at most once per round trip, since all the requests
+					// in flight are likely to observe the same overload
+					if (now - lastBackoffNanos > Math.max(baselineNanos, MIN_OVERLOAD_LATENCY_NANOS)) {
+						limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+						lastBackoffNanos = now;
+					}
+				} else if (inFlight >= (int) limit) {
+					// Only grow when the current limit is actually being used
+					limit = Math.min(maxLimit, limit + 1.0 / limit);
+				}
+				current = (int) limit;
+			}
+			if (previous != current) {
+				logger.debug(MessageFormat.format("Concurrency limit for ''{0}'' changed from {1} to {2}", endpointClass, previous, current));
+			}
+			if (current > previous) {
+				drain();
+			}
+		}
+	}
+
+	private static class Permit {
+
+		private final Limiter limiter;
+		private final long start = System.nanoTime();
+		private final AtomicBoolean released = new AtomicBoolean();
+
+		private Permit(Limiter limiter) {
+			this.limiter = limiter;
+		}
+
+		private void onCompletion(int status, SignalType signal) {
+			if (signal == SignalType.ON_COMPLETE) {
+				boolean overloaded = status == HttpStatus.TOO_MANY_REQUESTS.value() || status == HttpStatus.SERVICE_UNAVAILABLE.value();
+				limiter.onSample(System.nanoTime() - start, overloaded);
+			} else if (signal == SignalType.ON_ERROR) {
+				// The connection was lost while receiving the body
+				limiter.onSample(System.nanoTime() - start, true);
+			}
+			// Cancelled bodies (e.g., when only the first elements of a stream are
+			// needed) are not a meaningful latency sample
+			release();
+		}
+
+		private void onError(Throwable error) {
+			// Connection errors and timeouts are treated as a sign of overload
+			limiter.onSample(System.nanoTime() - start, true);
+			release();
+		}
+
+		private void release() {
+			// Releasing is idempotent, since a permit may be released both by the
+			// completion of the request and by its cancellation
+			if (released.compareAndSet(false, true)) {
+				limiter.release();
+			}
+		}
+	}
+}
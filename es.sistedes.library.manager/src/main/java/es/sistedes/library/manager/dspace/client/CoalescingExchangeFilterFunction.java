@@ -0,0 +1,168 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.client;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ExchangeFilterFunction} that coalesces identical GET requests. While a
+ * GET request is in flight, identical requests (i.e., requests for the same
+ * {@link java.net.URI}) do not reach the server, and receive a copy of its
+ * response instead. Successful responses are also kept for a short time, so
+ * that repeated reads of the same resource (e.g., the same author, or the same
+ * search) are served from memory.
+ *
+ * Any other request (POST, PUT, PATCH, DELETE...) may modify the resources, so
+ * it discards all the kept responses, both when it is sent and when it
+ * completes. Responses that set session tokens are never kept, and responses
+ * that are decoded as a stream (see {@link StreamingPageDecoder}) are not
+ * coalesced, since that would require buffering them.
+ */
+public class CoalescingExchangeFilterFunction implements ExchangeFilterFunction {
+
+	private static final List<String> SESSION_HEADERS = List.of(HttpHeaders.SET_COOKIE, HttpHeaders.AUTHORIZATION, "DSPACE-XSRF-TOKEN");
+
+	private final Duration timeToLive;
+	private final Map<String, SharedResponse> responses = new ConcurrentHashMap<>();
+	private final AtomicLong sent = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/**
+	 * Response of a GET request, either in flight or already received
+	 */
+	private class SharedResponse {
+		private final String key;
+		private final Mono<BufferedResponse> response;
+		// When the response was received, or -1 while it is in flight
+		private volatile long receivedAt = -1;
+
+		private SharedResponse(String key, ClientRequest request, ExchangeFunction next) {
+			this.key = key;
+			// @formatter:off
+			this.response = next.exchange(request)
+					.flatMap(response -> DataBufferUtils.join(response.body(BodyExtractors.toDataBuffers())).map(buffer -> {
+						byte[] bytes = new byte[buffer.readableByteCount()];
+						buffer.read(bytes);
+						DataBufferUtils.release(buffer);
+						return bytes;
+					}).defaultIfEmpty(new byte[0]).map(bytes -> new BufferedResponse(response, bytes)))
+					.doOnNext(buffered -> {
+						if (isKeepable(buffered.response)) {
+							receivedAt = System.currentTimeMillis();
+						} else {
+							responses.remove(key, this);
+						}
+					})
+					.doOnError(e -> responses.remove(key, this))
+					.cache();
+			// @formatter:on
+		}
+
+		private boolean isExpired() {
+			return receivedAt >= 0 && System.currentTimeMillis() - receivedAt > timeToLive.toMillis();
+		}
+	}
+
+	/**
+	 * Fully read response, whose body can be served to several subscribers
+	 */
+	private static class BufferedResponse {
+		private final ClientResponse response;
+		private final byte[] body;
+
+		private BufferedResponse(ClientResponse response, byte[] body) {
+			this.response = response;
+			this.body = body;
+		}
+
+		/**
+		 * Returns a copy of the response. The body is replaced with a transformer,
+		 * since replacing it directly would subscribe again to the already consumed
+		 * body to release it.
+		 */
+		private ClientResponse copy() {
+			return response.mutate().body(consumed -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(body))).build();
+		}
+	}
+
+	/**
+	 * @param timeToLive how long successful responses are kept after they are
+	 *                   received
+	 */
+	public CoalescingExchangeFilterFunction(Duration timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		if (request.method() != HttpMethod.GET) {
+			return Mono.defer(() -> {
+				responses.clear();
+				return next.exchange(request);
+			}).doFinally(signal -> responses.clear());
+		}
+		if (request.attribute(StreamingPageDecoder.STREAMED_RESPONSE_ATTRIBUTE).isPresent()) {
+			return next.exchange(request);
+		}
+		return Mono.defer(() -> {
+			String key = request.url().toString();
+			SharedResponse shared = responses.compute(key, (k, existing) -> {
+				if (existing != null && !existing.isExpired()) {
+					coalesced.incrementAndGet();
+					return existing;
+				}
+				sent.incrementAndGet();
+				return new SharedResponse(k, request, next);
+			});
+			// Expired responses are otherwise only replaced when requested again
+			responses.values().removeIf(SharedResponse::isExpired);
+			return shared.response.map(BufferedResponse::copy);
+		});
+	}
+
+	/**
+	 * @return the number of GET requests actually sent
+	 */
+	public long getSent() {
+		return sent.get();
+	}
+
+	/**
+	 * @return the number of GET requests served with the response of an identical
+	 *         request, without contacting the server
+	 */
+	public long getCoalesced() {
+		return coalesced.get();
+	}
+
+	private static boolean isKeepable(ClientResponse response) {
+		HttpHeaders headers = response.headers().asHttpHeaders();
+		return response.statusCode().is2xxSuccessful() && SESSION_HEADERS.stream().noneMatch(headers::containsKey);
+	}
+}
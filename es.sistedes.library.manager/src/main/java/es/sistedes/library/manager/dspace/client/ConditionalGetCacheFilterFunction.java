@@ -0,0 +1,248 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * {@link ExchangeFilterFunction} implementing a persistent HTTP cache for the
+ * JSON responses of GET requests. Responses carrying an <code>ETag</code> or a
+ * <code>Last-Modified</code> header are stored on disk, keyed by the request
+ * {@link URI}. When the same {@link URI} is requested again, even in a
+ * different run, the request is sent with the <code>If-None-Match</code> and
+ * <code>If-Modified-Since</code> headers, and if the server answers with a 304
+ * status the stored body is served instead. Since entries are always
+ * revalidated, stale bodies are never served. Responses that are decoded as a
+ * stream (see {@link StreamingPageDecoder}) are not cached, since that would
+ * require buffering them. Entries are written in the background, so
+ * {@link #flush()} must be called before exiting.
+ */
+public class ConditionalGetCacheFilterFunction implements ExchangeFilterFunction {
+
+	private static final Logger logger = LoggerFactory.getLogger(ConditionalGetCacheFilterFunction.class);
+
+	// Entries older than this are discarded, so that the cache does not grow forever
+	private static final Duration MAX_AGE = Duration.ofDays(30);
+
+	private final Path directory;
+	private final ObjectMapper mapper = new ObjectMapper();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong savedBytes = new AtomicLong();
+	private final Set<CompletableFuture<Void>> pendingWrites = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Entry of the cache, as stored on disk
+	 */
+	public static class CacheEntry {
+		public String uri;
+		public String etag;
+		public long lastModified = -1;
+		public String contentType;
+		public String body;
+		public long storedAt;
+	}
+
+	/**
+	 * @param directory the directory where the responses are stored. Since
+	 *                  responses depend on the permissions of the logged in
+	 *                  user, different users should use different directories.
+	 */
+	public ConditionalGetCacheFilterFunction(Path directory) {
+		this.directory = directory;
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		if (request.method() != HttpMethod.GET || request.attribute(StreamingPageDecoder.STREAMED_RESPONSE_ATTRIBUTE).isPresent()) {
+			return next.exchange(request);
+		}
+		// @formatter:off
+		return Mono.fromCallable(() -> read(request.url()))
+				.subscribeOn(Schedulers.boundedElastic())
+				.flatMap(entry -> next.exchange(entry.map(e -> withValidators(request, e)).orElse(request))
+						.flatMap(response -> handleResponse(request, entry, response)));
+		// @formatter:on
+	}
+
+	/**
+	 * @return the number of responses served from the cache after a 304 status
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of cacheable responses that had to be downloaded
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/**
+	 * @return the number of body bytes that did not have to be downloaded
+	 */
+	public long getSavedBytes() {
+		return savedBytes.get();
+	}
+
+	/**
+	 * Waits until the entries being written to (or deleted from) the disk in the
+	 * background have been completed
+	 */
+	public void flush() {
+		CompletableFuture.allOf(pendingWrites.toArray(CompletableFuture[]::new)).join();
+	}
+
+	private static ClientRequest withValidators(ClientRequest request, CacheEntry entry) {
+		return ClientRequest.from(request).headers(headers -> {
+			if (entry.etag != null) {
+				headers.setIfNoneMatch(entry.etag);
+			}
+			if (entry.lastModified >= 0) {
+				headers.setIfModifiedSince(entry.lastModified);
+			}
+		}).build();
+	}
+
+	private Mono<ClientResponse> handleResponse(ClientRequest request, Optional<CacheEntry> entry, ClientResponse response) {
+		if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value() && entry.isPresent()) {
+			hits.incrementAndGet();
+			savedBytes.addAndGet(entry.get().body.getBytes(StandardCharsets.UTF_8).length);
+			// @formatter:off
+			return response.releaseBody().then(Mono.fromSupplier(() -> response.mutate()
+					.statusCode(HttpStatus.OK)
+					.headers(headers -> headers.setContentType(MediaType.parseMediaType(entry.get().contentType)))
+					.body(entry.get().body)
+					.build()));
+			// @formatter:on
+		}
+		HttpHeaders headers = response.headers().asHttpHeaders();
+		boolean cacheable = headers.getETag() != null || headers.getLastModified() >= 0;
+		MediaType contentType = headers.getContentType();
+		if (response.statusCode().value() != HttpStatus.OK.value() || contentType == null || !contentType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+			return Mono.just(response);
+		} else if (!cacheable) {
+			entry.ifPresent(e -> inBackground(() -> delete(request.url())));
+			return Mono.just(response);
+		}
+		misses.incrementAndGet();
+		return response.bodyToMono(String.class).defaultIfEmpty("").map(body -> {
+			CacheEntry newEntry = new CacheEntry();
+			newEntry.uri = request.url().toString();
+			newEntry.etag = headers.getETag();
+			newEntry.lastModified = headers.getLastModified();
+			newEntry.contentType = contentType.toString();
+			newEntry.body = body;
+			newEntry.storedAt = System.currentTimeMillis();
+			inBackground(() -> write(newEntry));
+			return response.mutate().body(body).build();
+		});
+	}
+
+	private void inBackground(Runnable task) {
+		CompletableFuture<Void> future = Mono.fromRunnable(task).subscribeOn(Schedulers.boundedElastic()).then().toFuture();
+		pendingWrites.add(future);
+		future.whenComplete((result, error) -> pendingWrites.remove(future));
+	}
+
+	private Optional<CacheEntry> read(URI uri) {
+		Path file = getFile(uri);
+		if (!Files.exists(file)) {
+			return Optional.empty();
+		}
+		try {
+			CacheEntry entry = mapper.readValue(file.toFile(), CacheEntry.class);
+			// Collisions are unlikely, but check them anyway
+			if (!uri.toString().equals(entry.uri) || System.currentTimeMillis() - entry.storedAt > MAX_AGE.toMillis()) {
+				Files.deleteIfExists(file);
+				return Optional.empty();
+			}
+			return Optional.of(entry);
+		} catch (IOException e) {
+			logger.warn(MessageFormat.format("Unable to read cached response for ''{0}'' ({1})", uri, e.getLocalizedMessage()));
+			return Optional.empty();
+		}
+	}
+
+	private void write(CacheEntry entry) {
+		Path file = getFile(URI.create(entry.uri));
+		try {
+			Files.createDirectories(directory);
+			// Write to a temporary file first, so that concurrent readers never
+			// see a partially written entry
+			Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+			mapper.writeValue(tmp.toFile(), entry);
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.warn(MessageFormat.format("Unable to cache response for ''{0}'' ({1})", entry.uri, e.getLocalizedMessage()));
+		}
+	}
+
+	private void delete(URI uri) {
+		try {
+			Files.deleteIfExists(getFile(uri));
+		} catch (IOException e) {
+			logger.warn(MessageFormat.format("Unable to delete cached response for ''{0}'' ({1})", uri, e.getLocalizedMessage()));
+		}
+	}
+
+	private Path getFile(URI uri) {
+		return directory.resolve(hash(uri.toString()) + ".json");
+	}
+
+	/**
+	 * Returns the SHA-256 hash of the given value, in hexadecimal
+	 * 
+	 * @param value
+	 * @return
+	 */
+	public static String hash(String value) {
+		try {
+			return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			// SHA-256 is always available in the JRE
+			throw new IllegalStateException(e);
+		}
+	}
+}
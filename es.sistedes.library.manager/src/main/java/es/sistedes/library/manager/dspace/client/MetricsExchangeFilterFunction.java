@@ -0,0 +1,336 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.client;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.client.reactive.ClientHttpRequestDecorator;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ExchangeFilterFunction} that collects per-endpoint metrics of the
+ * requests sent to DSpace: number of requests, errors (responses with a 4xx or
+ * 5xx status, or requests that could not be completed), bytes sent and
+ * received, and latency percentiles. Requests are grouped by HTTP method and
+ * endpoint, where the endpoint is the path of the request relative to the REST
+ * API root, with its UUIDs and numeric identifiers replaced by placeholders
+ * (e.g., <code>core/items/{uuid}/relationships</code>).
+ *
+ * Latencies are measured until the response status and headers are received,
+ * and include the time spent waiting for a connection, retrying and
+ * re-authenticating when this filter precedes the filters doing so. Duplicate
+ * reads served by the coalescing filter are not counted when this filter
+ * follows it. Latencies are
+ * counted in fixed buckets, the same ones of the Prometheus histogram, so the
+ * memory used does not depend on the number of requests, and percentiles are
+ * estimated by interpolating within the buckets.
+ */
+public class MetricsExchangeFilterFunction implements ExchangeFilterFunction {
+
+	private static final Pattern UUID = Pattern.compile("[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}");
+	private static final Pattern NUMBER = Pattern.compile("\\d+");
+	// Everything up to the REST API root, e.g., "/server/api/"
+	private static final Pattern API_ROOT = Pattern.compile("^.*?/api(/|$)");
+	private static final String ROOT_ENDPOINT = "(root)";
+	// Upper bounds of the latency buckets, in seconds. An additional bucket holds
+	// the latencies above the last bound
+	private static final double[] BUCKETS = { 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60 };
+	private static final long[] BUCKET_NANOS = Arrays.stream(BUCKETS).mapToLong(bound -> (long) (bound * TimeUnit.SECONDS.toNanos(1))).toArray();
+
+	// Sorted by method and endpoint, so that reports of different runs can be diffed
+	private final Map<String, EndpointMetrics> metrics = new ConcurrentSkipListMap<>();
+
+	/**
+	 * Metrics collected for a method and endpoint
+	 */
+	private static class EndpointMetrics {
+		private final String method;
+		private final String endpoint;
+		private final LongAdder errors = new LongAdder();
+		private final LongAdder bytesSent = new LongAdder();
+		private final LongAdder bytesReceived = new LongAdder();
+		// Number of latencies in each bucket (not cumulative)
+		private final long[] buckets = new long[BUCKETS.length + 1];
+		private long count;
+		// Latencies, in nanoseconds
+		private long totalNanos;
+		private long maxNanos;
+
+		private EndpointMetrics(String method, String endpoint) {
+			this.method = method;
+			this.endpoint = endpoint;
+		}
+
+		private synchronized void addLatency(long nanos) {
+			int bucket = Arrays.binarySearch(BUCKET_NANOS, nanos);
+			buckets[bucket >= 0 ? bucket : -bucket - 1]++;
+			count++;
+			totalNanos += nanos;
+			maxNanos = Math.max(maxNanos, nanos);
+		}
+
+		/**
+		 * Estimates the given percentile as Prometheus does, i.e., assuming that the
+		 * latencies are evenly distributed within their bucket. The estimation is
+		 * never above the actual maximum.
+		 */
+		private synchronized long percentile(double percentile) {
+			double rank = percentile * count;
+			long cumulative = 0;
+			for (int i = 0; i < buckets.length; i++) {
+				if (buckets[i] > 0 && cumulative + buckets[i] >= rank) {
+					long lower = i == 0 ? 0 : BUCKET_NANOS[i - 1];
+					long upper = i < BUCKET_NANOS.length ? Math.min(BUCKET_NANOS[i], maxNanos) : maxNanos;
+					return lower + (long) ((upper - lower) * (rank - cumulative) / buckets[i]);
+				}
+				cumulative += buckets[i];
+			}
+			return maxNanos;
+		}
+	}
+
+	/**
+	 * Snapshot of the metrics of a method and endpoint, as written in the JSON
+	 * report. Times are in milliseconds.
+	 */
+	public static class EndpointSummary {
+		public String method;
+		public String endpoint;
+		public long count;
+		public long errors;
+		public long bytesSent;
+		public long bytesReceived;
+		public double totalTime;
+		public double p50;
+		public double p95;
+		public double p99;
+		public double max;
+		// Cumulative number of requests by upper bound of their latency, in seconds
+		public Map<String, Long> buckets = new LinkedHashMap<>();
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		String method = request.method().name();
+		String endpoint = normalize(request.url().getRawPath());
+		EndpointMetrics endpointMetrics = metrics.computeIfAbsent(method + " " + endpoint, k -> new EndpointMetrics(method, endpoint));
+		AtomicLong sent = new AtomicLong();
+		// @formatter:off
+		ClientRequest countedRequest = ClientRequest.from(request)
+				.body((output, context) -> request.body().insert(new ClientHttpRequestDecorator(output) {
+					@Override
+					public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+						return super.writeWith(Flux.from(body).doOnNext(buffer -> sent.addAndGet(buffer.readableByteCount())));
+					}
+
+					@Override
+					public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+						return super.writeAndFlushWith(Flux.from(body).map(chunk -> Flux.from(chunk).doOnNext(buffer -> sent.addAndGet(buffer.readableByteCount()))));
+					}
+				}, context))
+				.build();
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			return next.exchange(countedRequest)
+					.doOnError(e -> {
+						endpointMetrics.errors.increment();
+						record(endpointMetrics, start, sent);
+					})
+					.map(response -> {
+						if (response.statusCode().isError()) {
+							endpointMetrics.errors.increment();
+						}
+						record(endpointMetrics, start, sent);
+						return response.mutate()
+								.body(body -> body.doOnNext(buffer -> endpointMetrics.bytesReceived.add(buffer.readableByteCount())))
+								.build();
+					});
+		});
+		// @formatter:on
+	}
+
+	private static void record(EndpointMetrics endpointMetrics, long start, AtomicLong sent) {
+		endpointMetrics.addLatency(System.nanoTime() - start);
+		endpointMetrics.bytesSent.add(sent.get());
+	}
+
+	/**
+	 * Returns the path relative to the REST API root, with UUIDs and numeric
+	 * identifiers replaced by placeholders
+	 *
+	 * @param path
+	 * @return
+	 */
+	private static String normalize(String path) {
+		String relative = StringUtils.strip(API_ROOT.matcher(path).replaceFirst(""), "/");
+		if (relative.isEmpty()) {
+			return ROOT_ENDPOINT;
+		}
+		// @formatter:off
+		return Arrays.stream(relative.split("/"))
+				.map(segment -> UUID.matcher(segment).matches() ? "{uuid}" : NUMBER.matcher(segment).matches() ? "{id}" : segment)
+				.collect(Collectors.joining("/"));
+		// @formatter:on
+	}
+
+	/**
+	 * Returns a snapshot of the metrics collected so far, sorted by method and
+	 * endpoint
+	 *
+	 * @return
+	 */
+	public List<EndpointSummary> getSummaries() {
+		List<EndpointSummary> summaries = new ArrayList<>();
+		for (EndpointMetrics endpointMetrics : metrics.values()) {
+			EndpointSummary summary = new EndpointSummary();
+			synchronized (endpointMetrics) {
+				if (endpointMetrics.count == 0) {
+					continue;
+				}
+				summary.count = endpointMetrics.count;
+				summary.totalTime = toMillis(endpointMetrics.totalNanos);
+				summary.p50 = toMillis(endpointMetrics.percentile(0.50));
+				summary.p95 = toMillis(endpointMetrics.percentile(0.95));
+				summary.p99 = toMillis(endpointMetrics.percentile(0.99));
+				summary.max = toMillis(endpointMetrics.maxNanos);
+				long cumulative = 0;
+				for (int i = 0; i < endpointMetrics.buckets.length; i++) {
+					cumulative += endpointMetrics.buckets[i];
+					summary.buckets.put(i < BUCKETS.length ? formatBound(BUCKETS[i]) : "+Inf", cumulative);
+				}
+			}
+			summary.method = endpointMetrics.method;
+			summary.endpoint = endpointMetrics.endpoint;
+			summary.errors = endpointMetrics.errors.sum();
+			summary.bytesSent = endpointMetrics.bytesSent.sum();
+			summary.bytesReceived = endpointMetrics.bytesReceived.sum();
+			summaries.add(summary);
+		}
+		return summaries;
+	}
+
+	/**
+	 * Returns the metrics collected so far as a human readable table
+	 *
+	 * @return
+	 */
+	public String toTable() {
+		StringWriter writer = new StringWriter();
+		PrintWriter out = new PrintWriter(writer);
+		String format = "%-7s %-50s %7s %7s %12s %12s %10s %10s %10s %10s%n";
+		out.printf(Locale.ROOT, format, "Method", "Endpoint", "Count", "Errors", "Sent (B)", "Recv (B)", "p50 (ms)", "p95 (ms)", "p99 (ms)", "Total (s)");
+		for (EndpointSummary summary : getSummaries()) {
+			// @formatter:off
+			out.printf(Locale.ROOT, format, summary.method, StringUtils.abbreviate(summary.endpoint, 50), summary.count, summary.errors,
+					summary.bytesSent, summary.bytesReceived,
+					String.format(Locale.ROOT, "%.1f", summary.p50),
+					String.format(Locale.ROOT, "%.1f", summary.p95),
+					String.format(Locale.ROOT, "%.1f", summary.p99),
+					String.format(Locale.ROOT, "%.2f", summary.totalTime / 1000));
+			// @formatter:on
+		}
+		out.flush();
+		return writer.toString();
+	}
+
+	/**
+	 * Returns the metrics collected so far in the Prometheus text exposition format
+	 *
+	 * @return
+	 */
+	public String toPrometheus() {
+		List<EndpointSummary> summaries = getSummaries();
+		StringBuilder builder = new StringBuilder();
+		appendMetric(builder, summaries, "dspace_client_requests_total", "counter", "Number of requests sent to DSpace", s -> s.count);
+		appendMetric(builder, summaries, "dspace_client_request_errors_total", "counter", "Number of requests to DSpace that failed", s -> s.errors);
+		appendMetric(builder, summaries, "dspace_client_sent_bytes_total", "counter", "Bytes sent to DSpace in request bodies", s -> s.bytesSent);
+		appendMetric(builder, summaries, "dspace_client_received_bytes_total", "counter", "Bytes received from DSpace in response bodies", s -> s.bytesReceived);
+		String name = "dspace_client_request_duration_seconds";
+		builder.append("# HELP ").append(name).append(" Latency of the requests sent to DSpace\n");
+		builder.append("# TYPE ").append(name).append(" histogram\n");
+		for (EndpointSummary summary : summaries) {
+			String labels = labels(summary);
+			summary.buckets.forEach((bound, cumulative) -> builder.append(String.format(Locale.ROOT, "%s_bucket{%s,le=\"%s\"} %d%n", name, labels, bound, cumulative)));
+			builder.append(String.format(Locale.ROOT, "%s_sum{%s} %.6f%n", name, labels, summary.totalTime / 1000));
+			builder.append(String.format(Locale.ROOT, "%s_count{%s} %d%n", name, labels, summary.count));
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Writes the metrics collected so far to <code>file</code>, in the Prometheus
+	 * text format if its extension is <code>.prom</code> or <code>.txt</code>, or
+	 * as JSON otherwise
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(Path file) throws IOException {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		if (name.endsWith(".prom") || name.endsWith(".txt")) {
+			Files.writeString(file, toPrometheus(), StandardCharsets.UTF_8);
+		} else {
+			new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file.toFile(), getSummaries());
+		}
+	}
+
+	private static void appendMetric(StringBuilder builder, List<EndpointSummary> summaries, String name, String type, String help, ToLongFunction<EndpointSummary> value) {
+		builder.append("# HELP ").append(name).append(" ").append(help).append("\n");
+		builder.append("# TYPE ").append(name).append(" ").append(type).append("\n");
+		for (EndpointSummary summary : summaries) {
+			builder.append(name).append("{").append(labels(summary)).append("} ").append(value.applyAsLong(summary)).append("\n");
+		}
+	}
+
+	private static String labels(EndpointSummary summary) {
+		return String.format("method=\"%s\",endpoint=\"%s\"", summary.method, summary.endpoint.replace("\\", "\\\\").replace("\"", "\\\""));
+	}
+
+	private static String formatBound(double bound) {
+		return BigDecimal.valueOf(bound).stripTrailingZeros().toPlainString();
+	}
+
+	private static double toMillis(long nanos) {
+		return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+	}
+}
@@ -0,0 +1,293 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.BodyExtractors;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ExchangeFilterFunction} that records the HTTP traffic of a session in
+ * a cassette file, or replays a previously recorded cassette without
+ * contacting the server. Replaying allows running a command deterministically
+ * and offline, e.g., to profile the client-side costs separately from the
+ * network latency.
+ *
+ * Only responses are recorded: request bodies (which may include credentials)
+ * and session headers (cookies, JWT and XSRF tokens) are never stored.
+ * Each request is identified by its method, its URI and its occurrence index
+ * (i.e., how many identical requests were sent before it), and on replay it is
+ * served the response recorded for the same identifier. This filter must
+ * precede all the filters that may change which requests reach the server
+ * (coalescing, authentication, caching, retries...), so that the recorded
+ * requests do not depend on their timing, and on replay no other filter is
+ * involved.
+ * <p>
+ * Thus, replaying is only deterministic if the requests are sent in the same
+ * order as when recording. Requests sent concurrently by independent units of
+ * work (see <code>--parallelism</code>) are numbered in whatever order they
+ * arrive, so, e.g., two concurrent creations of items in the same collection
+ * could be served each other's response on replay. Commands must therefore
+ * record and replay their traffic running a single unit of work at a time.
+ * Identical GET requests that are still sent concurrently (e.g., a background
+ * prefetch and a lookup of the same page) may also swap their responses, which
+ * is harmless as long as the resource is not modified in between.
+ */
+public class RecordReplayExchangeFilterFunction implements ExchangeFilterFunction {
+
+	private static final Logger logger = LoggerFactory.getLogger(RecordReplayExchangeFilterFunction.class);
+
+	private static final int CASSETTE_VERSION = 2;
+
+	// Headers that carry session secrets, and that are not needed on replay
+	private static final Set<String> SENSITIVE_HEADERS = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+	static {
+		SENSITIVE_HEADERS.addAll(List.of(HttpHeaders.AUTHORIZATION, HttpHeaders.SET_COOKIE, "DSPACE-XSRF-TOKEN"));
+	}
+
+	public enum Mode {
+		/**
+		 * Requests are sent to the server and their responses are recorded
+		 */
+		RECORD,
+		/**
+		 * Recorded responses are served at the same point of the session as when
+		 * they were recorded, and never faster than they took when recorded
+		 */
+		REPLAY,
+		/**
+		 * Recorded responses are served as fast as possible
+		 */
+		REPLAY_FAST
+	}
+
+	/**
+	 * Cassette, as stored on disk
+	 */
+	public static class Cassette {
+		public int version = CASSETTE_VERSION;
+		public String recordedAt;
+		public List<Interaction> interactions = new ArrayList<>();
+	}
+
+	/**
+	 * Recorded request/response pair
+	 */
+	public static class Interaction {
+		public String method;
+		public String uri;
+		// Number of identical requests sent before this one
+		public int occurrence;
+		public int status;
+		public Map<String, List<String>> headers = new LinkedHashMap<>();
+		public String body;
+		public boolean base64;
+		// Milliseconds since the start of the recording when the request was sent
+		public long offset;
+		// Milliseconds until the whole response was received
+		public long duration;
+	}
+
+	private final Mode mode;
+	private final Path file;
+	private final ExchangeStrategies strategies;
+	private final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+	private final long start = System.currentTimeMillis();
+	private final List<Interaction> recorded = Collections.synchronizedList(new ArrayList<>());
+	private final Map<String, Interaction> pending = new ConcurrentHashMap<>();
+	private final Map<String, AtomicInteger> occurrences = new ConcurrentHashMap<>();
+
+	/**
+	 * @param mode
+	 * @param file       the cassette file
+	 * @param strategies the strategies used to decode the replayed responses
+	 *                   (i.e., the strategies of the client)
+	 * @throws IOException if the cassette to replay cannot be read
+	 */
+	public RecordReplayExchangeFilterFunction(Mode mode, Path file, ExchangeStrategies strategies) throws IOException {
+		this.mode = mode;
+		this.file = file;
+		this.strategies = strategies;
+		if (mode != Mode.RECORD) {
+			Cassette cassette = mapper.readValue(file.toFile(), Cassette.class);
+			if (cassette.version != CASSETTE_VERSION) {
+				throw new IOException(MessageFormat.format("Unsupported cassette version {0}", cassette.version));
+			}
+			for (Interaction interaction : cassette.interactions) {
+				pending.put(key(interaction.method, interaction.uri, interaction.occurrence), interaction);
+			}
+			logger.info(MessageFormat.format("Replaying {0} recorded DSpace response(s) from ''{1}''", cassette.interactions.size(), file));
+		}
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		return mode == Mode.RECORD ? record(request, next) : replay(request);
+	}
+
+	/**
+	 * Writes the recorded interactions to the cassette file. Does nothing when
+	 * replaying.
+	 */
+	public void save() {
+		if (mode != Mode.RECORD) {
+			return;
+		}
+		Cassette cassette = new Cassette();
+		cassette.recordedAt = Instant.ofEpochMilli(start).toString();
+		synchronized (recorded) {
+			cassette.interactions.addAll(recorded);
+		}
+		try {
+			mapper.writeValue(file.toFile(), cassette);
+			logger.info(MessageFormat.format("{0} DSpace response(s) recorded in ''{1}''", cassette.interactions.size(), file));
+		} catch (IOException e) {
+			logger.error(MessageFormat.format("Unable to save recorded DSpace responses in ''{0}'' ({1})", file, e.getLocalizedMessage()));
+		}
+	}
+
+	private Mono<ClientResponse> record(ClientRequest request, ExchangeFunction next) {
+		return Mono.defer(() -> {
+			int occurrence = nextOccurrence(request);
+			long sent = System.currentTimeMillis();
+			return next.exchange(request).flatMap(response -> DataBufferUtils.join(response.body(BodyExtractors.toDataBuffers())).map(buffer -> {
+				byte[] bytes = new byte[buffer.readableByteCount()];
+				buffer.read(bytes);
+				DataBufferUtils.release(buffer);
+				return bytes;
+			}).defaultIfEmpty(new byte[0]).map(bytes -> {
+				Interaction interaction = new Interaction();
+				interaction.method = request.method().name();
+				interaction.uri = request.url().toString();
+				interaction.occurrence = occurrence;
+				interaction.status = response.statusCode().value();
+				response.headers().asHttpHeaders().forEach((name, values) -> {
+					if (!SENSITIVE_HEADERS.contains(name)) {
+						interaction.headers.put(name, values);
+					}
+				});
+				MediaType contentType = response.headers().contentType().orElse(null);
+				interaction.base64 = contentType != null && !contentType.isCompatibleWith(MediaType.APPLICATION_JSON)
+						&& !contentType.getType().equals("text");
+				interaction.body = interaction.base64 ? Base64.getEncoder().encodeToString(bytes) : new String(bytes, StandardCharsets.UTF_8);
+				interaction.offset = sent - start;
+				interaction.duration = System.currentTimeMillis() - sent;
+				recorded.add(interaction);
+				return response.mutate().body(Flux.just(wrap(bytes))).build();
+			}));
+		});
+	}
+
+	private Mono<ClientResponse> replay(ClientRequest request) {
+		return Mono.defer(() -> {
+			String key = key(request.method().name(), request.url().toString(), nextOccurrence(request));
+			Interaction interaction = pending.remove(key);
+			if (interaction == null) {
+				return Mono.error(new IllegalStateException(MessageFormat.format("No recorded response for {0}", key)));
+			}
+			// @formatter:off
+			Mono<ClientResponse> response = Mono.fromSupplier(() -> ClientResponse.create(interaction.status, strategies)
+					.headers(headers -> interaction.headers.forEach(headers::addAll))
+					.body(Flux.defer(() -> Flux.just(wrap(interaction.base64 ? Base64.getDecoder().decode(interaction.body) : interaction.body.getBytes(StandardCharsets.UTF_8)))))
+					.request(new ReplayedRequest(request))
+					.build());
+			// @formatter:on
+			if (mode == Mode.REPLAY_FAST) {
+				return response;
+			}
+			// The response is not served before it was received when recording, but if
+			// the request is sent later, it still takes the recorded duration
+			long elapsed = System.currentTimeMillis() - start;
+			long delay = Math.max(interaction.duration, interaction.offset + interaction.duration - elapsed);
+			return Mono.delay(Duration.ofMillis(delay)).then(response);
+		});
+	}
+
+	private int nextOccurrence(ClientRequest request) {
+		return occurrences.computeIfAbsent(request.method().name() + " " + request.url(), k -> new AtomicInteger()).getAndIncrement();
+	}
+
+	private static DataBuffer wrap(byte[] bytes) {
+		return DefaultDataBufferFactory.sharedInstance.wrap(bytes);
+	}
+
+	private static String key(String method, String uri, int occurrence) {
+		return method + " " + uri + " #" + occurrence;
+	}
+
+	/**
+	 * Minimal description of the replayed request, used by the client to build
+	 * error messages
+	 */
+	private static class ReplayedRequest implements HttpRequest {
+		private final ClientRequest request;
+
+		private ReplayedRequest(ClientRequest request) {
+			this.request = request;
+		}
+
+		@Override
+		public HttpHeaders getHeaders() {
+			return request.headers();
+		}
+
+		@Override
+		public HttpMethod getMethod() {
+			return request.method();
+		}
+
+		@Override
+		public URI getURI() {
+			return request.url();
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.client;
+
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ExchangeFilterFunction} that retries the requests that fail because
+ * of a transient error (a connection error, or a 429, 502, 503 or 504 status)
+ * using an exponential backoff with jitter. Only the requests that can be
+ * safely repeated are retried by this filter: GET, HEAD and OPTIONS requests
+ * (reads), PUT and DELETE requests (writes), and any other request marked with
+ * the {@link #IDEMPOTENT_ATTRIBUTE} attribute. Requests creating new objects
+ * must be retried with {@link #retryCreation(String, Supplier, Supplier)},
+ * which checks whether the object was created before retrying.
+ */
+public class RetryingExchangeFilterFunction implements ExchangeFilterFunction {
+
+	private static final Logger logger = LoggerFactory.getLogger(RetryingExchangeFilterFunction.class);
+
+	/**
+	 * Name of the request attribute that marks a request that is not GET, HEAD,
+	 * OPTIONS, PUT or DELETE as safe to be retried
+	 */
+	public static final String IDEMPOTENT_ATTRIBUTE = RetryingExchangeFilterFunction.class.getName() + ".idempotent";
+
+	private static final Duration BASE_BACKOFF = Duration.ofMillis(500);
+	private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+	/**
+	 * Retry policy of each type of operation
+	 */
+	public enum Operation {
+		READ(6), WRITE(4), CREATE(4);
+
+		private final int maxRetries;
+
+		private Operation(int maxRetries) {
+			this.maxRetries = maxRetries;
+		}
+	}
+
+	private final Map<Operation, AtomicLong> retries = new ConcurrentHashMap<>();
+	private final AtomicLong exhausted = new AtomicLong();
+
+	@Override
+	public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+		Operation operation = getOperation(request);
+		if (operation == null) {
+			return next.exchange(request);
+		}
+		return exchange(request, next, operation, 0);
+	}
+
+	/**
+	 * Executes the request that creates a new object and, if it fails because of a
+	 * transient error, checks whether the object has been created anyway before
+	 * retrying it, so that retries never create duplicates
+	 * 
+	 * @param <T>
+	 * @param description human readable description of the operation, for logging
+	 *                    purposes
+	 * @param creation    the request that creates the object
+	 * @param lookup      the request that retrieves the object if it already
+	 *                    exists, or completes empty otherwise
+	 * @return
+	 */
+	public <T> Mono<T> retryCreation(String description, Supplier<Mono<T>> creation, Supplier<Mono<T>> lookup) {
+		return retryCreation(description, creation, lookup, 0);
+	}
+
+	/**
+	 * Returns the number of retries performed for each type of operation
+	 * 
+	 * @return
+	 */
+	public Map<Operation, Long> getRetries() {
+		Map<Operation, Long> result = new TreeMap<>();
+		retries.forEach((operation, count) -> result.put(operation, count.get()));
+		return result;
+	}
+
+	/**
+	 * Returns the number of operations that still failed after all their retries
+	 * 
+	 * @return
+	 */
+	public long getExhausted() {
+		return exhausted.get();
+	}
+
+	private <T> Mono<T> retryCreation(String description, Supplier<Mono<T>> creation, Supplier<Mono<T>> lookup, int attempt) {
+		// @formatter:off
+		return Mono.defer(creation).onErrorResume(RetryingExchangeFilterFunction::isTransient, e -> {
+			if (attempt >= Operation.CREATE.maxRetries) {
+				exhausted.incrementAndGet();
+				return Mono.error(e);
+			}
+			Duration delay = getBackoff(attempt);
+			logRetry(description, e.getLocalizedMessage(), attempt, delay);
+			count(Operation.CREATE);
+			return Mono.delay(delay)
+					.then(Mono.defer(lookup))
+					.doOnNext(found -> logger.info(MessageFormat.format("{0} had already succeeded, not retrying", description)))
+					.switchIfEmpty(Mono.defer(() -> retryCreation(description, creation, lookup, attempt + 1)));
+		});
+		// @formatter:on
+	}
+
+	/**
+	 * Executes the given attempt of the request. Both a transient error and a
+	 * transient status are turned into an empty result after the backoff delay,
+	 * so that the next attempt is started from a single place and each attempt
+	 * is only checked once
+	 */
+	private Mono<ClientResponse> exchange(ClientRequest request, ExchangeFunction next, Operation operation, int attempt) {
+		String description = request.method() + " " + request.url();
+		boolean canRetry = attempt < operation.maxRetries;
+		// @formatter:off
+		return next.exchange(request)
+				.flatMap(response -> {
+					if (!isTransient(response.statusCode())) {
+						return Mono.just(response);
+					} else if (!canRetry) {
+						exhausted.incrementAndGet();
+						return Mono.just(response);
+					}
+					Duration delay = getRetryAfter(response.headers().asHttpHeaders()).orElse(getBackoff(attempt));
+					logRetry(description, response.statusCode().toString(), attempt, delay);
+					count(operation);
+					return response.releaseBody().then(Mono.delay(delay)).then(Mono.<ClientResponse>empty());
+				})
+				.onErrorResume(RetryingExchangeFilterFunction::isTransient, e -> {
+					if (!canRetry) {
+						exhausted.incrementAndGet();
+						return Mono.error(e);
+					}
+					Duration delay = getBackoff(attempt);
+					logRetry(description, e.getLocalizedMessage(), attempt, delay);
+					count(operation);
+					return Mono.delay(delay).then(Mono.<ClientResponse>empty());
+				})
+				.switchIfEmpty(Mono.defer(() -> exchange(request, next, operation, attempt + 1)));
+		// @formatter:on
+	}
+
+	private void count(Operation operation) {
+		retries.computeIfAbsent(operation, o -> new AtomicLong()).incrementAndGet();
+	}
+
+	private static void logRetry(String description, String cause, int attempt, Duration delay) {
+		logger.warn(MessageFormat.format("{0} failed ({1}), retrying in {2,number,#} ms (retry #{3})", description, cause, delay.toMillis(), attempt + 1));
+	}
+
+	private static Operation getOperation(ClientRequest request) {
+		HttpMethod method = request.method();
+		if (method == HttpMethod.GET || method == HttpMethod.HEAD || method == HttpMethod.OPTIONS) {
+			return Operation.READ;
+		} else if (method == HttpMethod.PUT || method == HttpMethod.DELETE || request.attribute(IDEMPOTENT_ATTRIBUTE).isPresent()) {
+			return Operation.WRITE;
+		}
+		return null;
+	}
+
+	/**
+	 * Computes an exponential backoff with "equal jitter": half of the delay is
+	 * fixed, and the other half is random, so that concurrent clients do not retry
+	 * at the same time
+	 * 
+	 * @param attempt
+	 * @return
+	 */
+	private static Duration getBackoff(int attempt) {
+		long delay = Math.min(MAX_BACKOFF.toMillis(), BASE_BACKOFF.toMillis() << Math.min(attempt, 16));
+		return Duration.ofMillis(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+	}
+
+	private static Optional<Duration> getRetryAfter(HttpHeaders headers) {
+		// Only the delay-seconds form of the header is supported
+		long seconds = NumberUtils.toLong(headers.getFirst(HttpHeaders.RETRY_AFTER), -1);
+		return seconds >= 0 ? Optional.of(Duration.ofSeconds(Math.min(seconds, MAX_BACKOFF.toSeconds()))) : Optional.empty();
+	}
+
+	private static boolean isTransient(HttpStatusCode status) {
+		// @formatter:off
+		return status.value() == HttpStatus.TOO_MANY_REQUESTS.value()
+				|| status.value() == HttpStatus.BAD_GATEWAY.value()
+				|| status.value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+				|| status.value() == HttpStatus.GATEWAY_TIMEOUT.value();
+		// @formatter:on
+	}
+
+	/**
+	 * Returns whether the given error is transient, and thus, the failed operation
+	 * may succeed if it is retried
+	 * 
+	 * @param error
+	 * @return
+	 */
+	public static boolean isTransient(Throwable error) {
+		if (error instanceof WebClientResponseException) {
+			return isTransient(((WebClientResponseException) error).getStatusCode());
+		}
+		return error instanceof WebClientRequestException || error instanceof IOException;
+	}
+}
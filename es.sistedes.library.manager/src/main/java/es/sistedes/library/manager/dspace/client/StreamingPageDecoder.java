@@ -0,0 +1,216 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.client;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * Decodes the elements of a page of a HAL collection (e.g., the
+ * <code>_embedded.relationships</code> of an item) one at a time, while the
+ * body of the response is being received. The body is tokenized with the
+ * non-blocking Jackson parser, and only the tokens of the element being
+ * decoded are kept in memory, so that memory usage does not depend on the size
+ * of the page. The link to the next page, if any, is also collected.
+ *
+ * Instances are stateful, and must be used to decode a single response.
+ *
+ * @param <T> the type of the elements
+ */
+public class StreamingPageDecoder<T> {
+
+	/**
+	 * Name of the request attribute that marks a request whose response is
+	 * decoded as a stream. Filters must not buffer the whole body of these
+	 * responses, so they bypass the coalescing and the HTTP cache filters.
+	 */
+	public static final String STREAMED_RESPONSE_ATTRIBUTE = StreamingPageDecoder.class.getName() + ".streamed";
+
+	// Names given in the path of the current token to the elements of an array,
+	// and suffix appended to the names of the arrays
+	private static final String ARRAY_ELEMENT = "*";
+	private static final String ARRAY_SUFFIX = "[]";
+	private static final String ROOT = "";
+	private static final String LINKS = "_links";
+	private static final String NEXT = "next";
+	private static final String HREF = "href";
+
+	private final ObjectReader reader;
+	private final List<String> elementsPath;
+	private final List<String> nextLinkPath;
+	private final JsonParser parser;
+	private final ByteArrayFeeder feeder;
+	// Names of the open objects and arrays, starting from the root
+	private final Deque<String> path = new ArrayDeque<>();
+	private String fieldName;
+	private TokenBuffer element;
+	private int elementDepth;
+	private String nextLink;
+
+	/**
+	 * @param mapper       the mapper used to decode the elements
+	 * @param elementType  the type of the elements
+	 * @param elementsPath the names of the fields leading to the array of
+	 *                     elements, e.g., <code>"_embedded", "relationships"</code>.
+	 *                     The link to the next page is expected in the
+	 *                     <code>_links</code> of the object that contains the
+	 *                     <code>_embedded</code> object.
+	 */
+	public StreamingPageDecoder(ObjectMapper mapper, JavaType elementType, String... elementsPath) {
+		if (elementsPath.length < 2) {
+			throw new IllegalArgumentException("The path to the elements must include the embedded object and the array");
+		}
+		this.reader = mapper.readerFor(elementType);
+		this.elementsPath = new ArrayList<>(List.of(ROOT));
+		this.elementsPath.addAll(Arrays.asList(elementsPath));
+		this.nextLinkPath = new ArrayList<>(this.elementsPath.subList(0, this.elementsPath.size() - 2));
+		this.nextLinkPath.addAll(List.of(LINKS, NEXT));
+		try {
+			this.parser = mapper.getFactory().createNonBlockingByteArrayParser();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+	}
+
+	/**
+	 * Feeds the given chunk of the body (which is released) to the decoder, and
+	 * returns the elements completed by it
+	 *
+	 * @param buffer
+	 * @return
+	 * @throws DecodingException if the body is not valid JSON, or an element
+	 *                           cannot be decoded
+	 */
+	public List<T> decode(DataBuffer buffer) {
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+		DataBufferUtils.release(buffer);
+		if (bytes.length == 0) {
+			return List.of();
+		}
+		try {
+			feeder.feedInput(bytes, 0, bytes.length);
+			return parse();
+		} catch (IOException e) {
+			throw new DecodingException("Unable to decode the elements of a page: " + e.getLocalizedMessage(), e);
+		}
+	}
+
+	/**
+	 * Signals the end of the body, and returns the elements completed by it, if
+	 * any
+	 *
+	 * @return
+	 * @throws DecodingException if the body is truncated
+	 */
+	public List<T> endOfInput() {
+		try {
+			feeder.endOfInput();
+			List<T> decoded = parse();
+			if (!path.isEmpty() || element != null) {
+				throw new DecodingException("Unexpected end of the page's body");
+			}
+			return decoded;
+		} catch (IOException e) {
+			throw new DecodingException("Unable to decode the elements of a page: " + e.getLocalizedMessage(), e);
+		}
+	}
+
+	/**
+	 * Returns the link to the next page, once the body has been decoded
+	 *
+	 * @return
+	 */
+	public Optional<URI> getNextLink() {
+		return Optional.ofNullable(nextLink).map(URI::create);
+	}
+
+	private List<T> parse() throws IOException {
+		List<T> decoded = new ArrayList<>();
+		JsonToken token;
+		while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+			if (element != null) {
+				element.copyCurrentEvent(parser);
+				elementDepth += token.isStructStart() ? 1 : token.isStructEnd() ? -1 : 0;
+				if (elementDepth == 0) {
+					decoded.add(reader.readValue(element.asParser()));
+					element = null;
+				}
+				continue;
+			}
+			switch (token) {
+			case FIELD_NAME:
+				fieldName = parser.getCurrentName();
+				break;
+			case START_OBJECT:
+			case START_ARRAY:
+				String name = path.isEmpty() ? ROOT : path.peekLast().endsWith(ARRAY_SUFFIX) ? ARRAY_ELEMENT : fieldName;
+				if (token == JsonToken.START_OBJECT && ARRAY_ELEMENT.equals(name) && isAt(elementsPath)) {
+					element = new TokenBuffer(parser);
+					element.copyCurrentEvent(parser);
+					elementDepth = 1;
+				} else {
+					path.addLast(token == JsonToken.START_ARRAY ? name + ARRAY_SUFFIX : name);
+				}
+				break;
+			case END_OBJECT:
+			case END_ARRAY:
+				path.removeLast();
+				break;
+			case VALUE_STRING:
+				if (HREF.equals(fieldName) && isAt(nextLinkPath)) {
+					nextLink = parser.getText();
+				}
+				break;
+			default:
+				break;
+			}
+		}
+		return decoded;
+	}
+
+	/**
+	 * Whether the current token is inside the container at the given path. Arrays
+	 * and their elements match the name of the array, so that, e.g.,
+	 * <code>_links.next.href</code> is found both as an object and as an array of
+	 * objects.
+	 */
+	private boolean isAt(List<String> expected) {
+		// @formatter:off
+		List<String> actual = path.stream()
+				.filter(name -> !ARRAY_ELEMENT.equals(name))
+				.map(name -> StringUtils.removeEnd(name, ARRAY_SUFFIX))
+				.toList();
+		// @formatter:on
+		return actual.equals(expected);
+	}
+}
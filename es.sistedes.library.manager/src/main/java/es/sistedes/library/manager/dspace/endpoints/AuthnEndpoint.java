@@ -17,44 +17,62 @@ import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.reactive.function.BodyInserters;
 
-import es.sistedes.library.manager.DSpaceConnectionManager;
+import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
+import es.sistedes.library.manager.dspace.client.RetryingExchangeFilterFunction;
 import es.sistedes.library.manager.dspace.model.AbstractHateoas;
+import reactor.core.publisher.Mono;
 
 public class AuthnEndpoint extends AbstractHateoas {
 
 	public void doLogin(String email, String password) {
+		doLoginAsync(email, password).block();
+	}
+	
+	public Mono<Void> doLoginAsync(String email, String password) {
 		MultiValueMap<String, String> data = new LinkedMultiValueMap<>();
 		data.add("user", email);
 		data.add("password", password);
-		DSpaceConnectionManager
-				.buildClient()
+		return connection
+				.getClient()
 				.post()
 				.uri(getLinkUri("login").get())
+				.attribute(DSpaceConnection.SKIP_REAUTHENTICATION_ATTRIBUTE, true)
+				.attribute(RetryingExchangeFilterFunction.IDEMPOTENT_ATTRIBUTE, true)
 				.contentType(MediaType.APPLICATION_FORM_URLENCODED)
 				.body(BodyInserters.fromFormData(data))
 				.retrieve()
 				.toBodilessEntity()
 				.doOnError(throwable -> new RuntimeException("Unable to log in! We cannot continue!"))
-				.block();
+				.then();
 	}
 
 	public ResponseEntity<Void> doLogout() {
-		return DSpaceConnectionManager
-				.buildClient()
+		return doLogoutAsync().block();
+	}
+	
+	public Mono<ResponseEntity<Void>> doLogoutAsync() {
+		return connection
+				.getClient()
 				.post()
 				.uri(getLinkUri("logout").get())
+				.attribute(DSpaceConnection.SKIP_REAUTHENTICATION_ATTRIBUTE, true)
+				.attribute(RetryingExchangeFilterFunction.IDEMPOTENT_ATTRIBUTE, true)
 				.retrieve()
-				.toBodilessEntity()
-				.block();
+				.toBodilessEntity();
 	}
 
 	public ResponseEntity<Void> refreshAuth() {
-		return DSpaceConnectionManager
-				.buildClient()
+		return refreshAuthAsync().block();
+	}
+	
+	public Mono<ResponseEntity<Void>> refreshAuthAsync() {
+		return connection
+				.getClient()
 				.post()
 				.uri(getLinkUri("login").get())
+				.attribute(DSpaceConnection.SKIP_REAUTHENTICATION_ATTRIBUTE, true)
+				.attribute(RetryingExchangeFilterFunction.IDEMPOTENT_ATTRIBUTE, true)
 				.retrieve()
-				.toBodilessEntity()
-				.block();
+				.toBodilessEntity();
 	}
 }
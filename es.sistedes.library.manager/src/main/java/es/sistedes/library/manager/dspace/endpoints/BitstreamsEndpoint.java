@@ -18,6 +18,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import es.sistedes.library.manager.dspace.model.AbstractPageableResponse;
 import es.sistedes.library.manager.dspace.model.DSBitstream;
+import reactor.core.publisher.Flux;
 
 public class BitstreamsEndpoint extends AbstractPageableResponse {
 
@@ -29,11 +30,12 @@ public class BitstreamsEndpoint extends AbstractPageableResponse {
 		protected List<DSBitstream> bitstreams;
 	}
 
+	public Flux<DSBitstream> streamAll() {
+		return streamAll(BitstreamsEndpoint.class, page -> page.embedded != null ? page.embedded.bitstreams : null);
+	}
+
 	public List<DSBitstream> getAll() {
-		if (page.getTotalPages() > 1) {
-			throw new UnsupportedOperationException("Results with more than one page are not yet supported");
-		}
-		return Collections.unmodifiableList(embedded.bitstreams);
+		return streamAll().collectList().map(Collections::unmodifiableList).block();
 	}
 
 }
@@ -16,12 +16,14 @@ import java.net.URI;
 import java.util.Arrays;
 import java.util.HashMap;
 
+import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
 import es.sistedes.library.manager.dspace.model.AbstractHateoas;
 import es.sistedes.library.manager.dspace.model.Link;
 
 public class BundlesEndpoint extends AbstractHateoas {
 
-	public BundlesEndpoint(URI selfUri) {
+	public BundlesEndpoint(DSpaceConnection connection, URI selfUri) {
+		this.connection = connection;
 		try {
 			links = new HashMap<>();
 			Link selfLink = new Link(selfUri.toURL());
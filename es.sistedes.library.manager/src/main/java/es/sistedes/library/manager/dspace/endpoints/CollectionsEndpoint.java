@@ -13,28 +13,53 @@ package es.sistedes.library.manager.dspace.endpoints;
 
 import org.springframework.http.MediaType;
 
-import es.sistedes.library.manager.DSpaceConnectionManager;
 import es.sistedes.library.manager.dspace.model.AbstractHateoas;
 import es.sistedes.library.manager.dspace.model.DSCollection;
 import es.sistedes.library.manager.dspace.model.DSCommunity;
+import es.sistedes.library.manager.dspace.model.ItemRef;
+import reactor.core.publisher.Mono;
 
 public class CollectionsEndpoint extends AbstractHateoas {
 
 	public DSCollection getCollection(String uuid) {
-		return DSpaceConnectionManager.buildClient(getSelfUri()).get().uri(uriBuilder -> uriBuilder.pathSegment(uuid).build()).retrieve()
-				.bodyToMono(DSCollection.class).block();
+		return getCollectionAsync(uuid).block();
 	}
+	
+	public Mono<DSCollection> getCollectionAsync(String uuid) {
+		return connection.getClient(getSelfUri()).get().uri(uriBuilder -> uriBuilder.pathSegment(uuid).build()).retrieve()
+				.bodyToMono(DSCollection.class);
+	}
+	
+	/**
+	 * Retrieves only the identity (UUID, name, handle and self link) of the
+	 * collection with the given UUID, skipping its metadata
+	 * 
+	 * @param uuid
+	 * @return
+	 */
+	public ItemRef getCollectionRef(String uuid) {
+		return getCollectionRefAsync(uuid).block();
+	}
+	
+	public Mono<ItemRef> getCollectionRefAsync(String uuid) {
+		return connection.getClient(getSelfUri()).get().uri(uriBuilder -> uriBuilder.pathSegment(uuid).build()).retrieve()
+				.bodyToMono(ItemRef.class);
+	}
+	
 	public DSCollection createCollection(DSCollection collection, DSCommunity parent) {
+		return createCollectionAsync(collection, parent).block();
+	}
+	
+	public Mono<DSCollection> createCollectionAsync(DSCollection collection, DSCommunity parent) {
 		// @formatter:off
-		return DSpaceConnectionManager
-			.buildClient(getSelfUri())
+		return connection
+			.getClient(getSelfUri())
 			.post()
 			.uri((uriBuilder) -> uriBuilder.queryParam("parent", parent.getUuid()).build())
 			.contentType(MediaType.APPLICATION_JSON)
 			.bodyValue(collection)
 			.retrieve()
-			.bodyToMono(DSCollection.class)
-			.block();
+			.bodyToMono(DSCollection.class);
 		// @formatter:on
 	}
 }
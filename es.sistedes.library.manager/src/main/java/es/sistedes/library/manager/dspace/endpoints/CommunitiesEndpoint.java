@@ -13,50 +13,68 @@ package es.sistedes.library.manager.dspace.endpoints;
 
 import org.springframework.http.MediaType;
 
-import es.sistedes.library.manager.DSpaceConnectionManager;
 import es.sistedes.library.manager.dspace.model.AbstractHateoas;
 import es.sistedes.library.manager.dspace.model.DSCommunity;
+import reactor.core.publisher.Mono;
 
 public class CommunitiesEndpoint extends AbstractHateoas {
 
 	public CommunitiesSearchEndpoint getSearchEndpoint() {
-		return DSpaceConnectionManager.buildClient().get().uri(getLinkUri("search").get()).retrieve().bodyToMono(CommunitiesSearchEndpoint.class).block();
+		return getSearchEndpointAsync().block();
+	}
+	
+	public Mono<CommunitiesSearchEndpoint> getSearchEndpointAsync() {
+		return connection.getClient().get().uri(getLinkUri("search").get()).retrieve().bodyToMono(CommunitiesSearchEndpoint.class);
 	}
 
 	public static CommunityCollectionsEndpoint getCollectionsEndpoint(DSCommunity community) {
-		return DSpaceConnectionManager.buildClient(community.getSelfUri()).get().uri(uriBuilder -> uriBuilder.pathSegment("collections").build()).retrieve()
-				.bodyToMono(CommunityCollectionsEndpoint.class).block();
+		return getCollectionsEndpointAsync(community).block();
+	}
+	
+	public static Mono<CommunityCollectionsEndpoint> getCollectionsEndpointAsync(DSCommunity community) {
+		return community.getConnection().getClient(community.getSelfUri()).get().uri(uriBuilder -> uriBuilder.pathSegment("collections").build()).retrieve()
+				.bodyToMono(CommunityCollectionsEndpoint.class);
 	}
 
 	public DSCommunity getCommunity(String uuid) {
-		return DSpaceConnectionManager.buildClient(getSelfUri()).get().uri(uriBuilder -> uriBuilder.pathSegment(uuid).build()).retrieve()
-				.bodyToMono(DSCommunity.class).block();
+		return getCommunityAsync(uuid).block();
+	}
+	
+	public Mono<DSCommunity> getCommunityAsync(String uuid) {
+		return connection.getClient(getSelfUri()).get().uri(uriBuilder -> uriBuilder.pathSegment(uuid).build()).retrieve()
+				.bodyToMono(DSCommunity.class);
 	}
 
 	public DSCommunity createTopCommunity(DSCommunity topCommunity) {
+		return createTopCommunityAsync(topCommunity).block();
+	}
+	
+	public Mono<DSCommunity> createTopCommunityAsync(DSCommunity topCommunity) {
 		// @formatter:off
-		return DSpaceConnectionManager
-				.buildClient(getSelfUri())
+		return connection
+				.getClient(getSelfUri())
 				.post()
 				.contentType(MediaType.APPLICATION_JSON)
 				.bodyValue(topCommunity)
 				.retrieve()
-				.bodyToMono(DSCommunity.class)
-				.block();
+				.bodyToMono(DSCommunity.class);
 		// @formatter:on
 	}
 
 	public DSCommunity createSubCommunity(DSCommunity subCommunity, DSCommunity parent) {
+		return createSubCommunityAsync(subCommunity, parent).block();
+	}
+	
+	public Mono<DSCommunity> createSubCommunityAsync(DSCommunity subCommunity, DSCommunity parent) {
 		// @formatter:off
-		return DSpaceConnectionManager
-			.buildClient(getSelfUri())
+		return connection
+			.getClient(getSelfUri())
 			.post()
 			.uri((uriBuilder) -> uriBuilder.queryParam("parent", parent.getUuid()).build())
 			.contentType(MediaType.APPLICATION_JSON)
 			.bodyValue(subCommunity)
 			.retrieve()
-			.bodyToMono(DSCommunity.class)
-			.block();
+			.bodyToMono(DSCommunity.class);
 		// @formatter:on
 	}
 }
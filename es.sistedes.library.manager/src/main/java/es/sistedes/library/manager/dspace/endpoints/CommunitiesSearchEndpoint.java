@@ -11,12 +11,16 @@
 
 package es.sistedes.library.manager.dspace.endpoints;
 
-import es.sistedes.library.manager.DSpaceConnectionManager;
 import es.sistedes.library.manager.dspace.model.AbstractHateoas;
+import reactor.core.publisher.Mono;
 
 public class CommunitiesSearchEndpoint extends AbstractHateoas {
 
 	public CommunitiesSearchTopEndpoint getSearchTopEndpoint() {
-		return DSpaceConnectionManager.buildClient().get().uri(getLinkUri("top").get()).retrieve().bodyToMono(CommunitiesSearchTopEndpoint.class).block();
+		return getSearchTopEndpointAsync().block();
+	}
+	
+	public Mono<CommunitiesSearchTopEndpoint> getSearchTopEndpointAsync() {
+		return connection.getClient().get().uri(getLinkUri("top").get()).retrieve().bodyToMono(CommunitiesSearchTopEndpoint.class);
 	}
 }
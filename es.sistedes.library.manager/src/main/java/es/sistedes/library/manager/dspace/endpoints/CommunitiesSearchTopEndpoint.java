@@ -12,14 +12,15 @@
 package es.sistedes.library.manager.dspace.endpoints;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import es.sistedes.library.manager.dspace.model.AbstractPageableResponse;
 import es.sistedes.library.manager.dspace.model.DSCommunity;
+import reactor.core.publisher.Flux;
 
 public class CommunitiesSearchTopEndpoint extends AbstractPageableResponse {
 	
@@ -31,11 +32,12 @@ public class CommunitiesSearchTopEndpoint extends AbstractPageableResponse {
 		protected List<DSCommunity> communities;
 	}
 
+	public Flux<DSCommunity> streamAll() {
+		return streamAll(CommunitiesSearchTopEndpoint.class, page -> page.embedded != null ? page.embedded.communities : null);
+	}
+
 	public Collection<DSCommunity> getAll() {
-		if (page.getTotalPages() > 1) {
-			throw new UnsupportedOperationException("Results with more than one page are not yet supported");
-		}
-		return embedded.communities.stream().collect(Collectors.toUnmodifiableList());
+		return streamAll().collectList().map(Collections::unmodifiableList).block();
 	}
 	
 	public Optional<DSCommunity> getFirst() {
@@ -11,13 +11,14 @@
 
 package es.sistedes.library.manager.dspace.endpoints;
 
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import es.sistedes.library.manager.dspace.model.AbstractPageableResponse;
 import es.sistedes.library.manager.dspace.model.DSCollection;
+import reactor.core.publisher.Flux;
 
 public class CommunityCollectionsEndpoint extends AbstractPageableResponse {
 
@@ -29,10 +30,11 @@ public class CommunityCollectionsEndpoint extends AbstractPageableResponse {
 		protected List<DSCollection> collections;
 	}
 	
+	public Flux<DSCollection> streamAll() {
+		return streamAll(CommunityCollectionsEndpoint.class, page -> page.embedded != null ? page.embedded.collections : null);
+	}
+
 	public List<DSCollection> getAll() {
-		if (page.getTotalPages() > 1) {
-			throw new UnsupportedOperationException("Results with more than one page are not yet supported");
-		}
-		return embedded.collections.stream().collect(Collectors.toUnmodifiableList());
+		return streamAll().collectList().map(Collections::unmodifiableList).block();
 	}
 }
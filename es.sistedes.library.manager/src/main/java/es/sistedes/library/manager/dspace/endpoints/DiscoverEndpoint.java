@@ -11,12 +11,16 @@
 
 package es.sistedes.library.manager.dspace.endpoints;
 
-import es.sistedes.library.manager.DSpaceConnectionManager;
 import es.sistedes.library.manager.dspace.model.AbstractHateoas;
+import reactor.core.publisher.Mono;
 
 public class DiscoverEndpoint extends AbstractHateoas {
 
 	public SearchEndpoint getSearchEndpoint() {
-		return DSpaceConnectionManager.buildClient().get().uri(getLinkUri("search").get()).retrieve().bodyToMono(SearchEndpoint.class).block();
+		return getSearchEndpointAsync().block();
+	}
+	
+	public Mono<SearchEndpoint> getSearchEndpointAsync() {
+		return connection.getClient().get().uri(getLinkUri("search").get()).retrieve().bodyToMono(SearchEndpoint.class);
 	}
 }
@@ -19,6 +19,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import es.sistedes.library.manager.dspace.model.AbstractPageableResponse;
 import es.sistedes.library.manager.dspace.model.DSBundle;
+import reactor.core.publisher.Flux;
 
 public class ItemBundlesEndpoint extends AbstractPageableResponse {
 
@@ -30,11 +31,12 @@ public class ItemBundlesEndpoint extends AbstractPageableResponse {
 		protected List<DSBundle> bundles;
 	}
 
+	public Flux<DSBundle> streamAll() {
+		return streamAll(ItemBundlesEndpoint.class, page -> page.embedded != null ? page.embedded.bundles : null);
+	}
+
 	public List<DSBundle> getAll() {
-		if (page.getTotalPages() > 1) {
-			throw new UnsupportedOperationException("Results with more than one page are not yet supported");
-		}
-		return Collections.unmodifiableList(embedded.bundles);
+		return streamAll().collectList().map(Collections::unmodifiableList).block();
 	}
 
 	public Optional<DSBundle> getBundle(String name) {
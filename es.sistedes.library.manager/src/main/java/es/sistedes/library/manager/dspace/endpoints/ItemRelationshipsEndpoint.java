@@ -18,6 +18,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import es.sistedes.library.manager.dspace.model.AbstractPageableResponse;
 import es.sistedes.library.manager.dspace.model.DSRelationship;
+import reactor.core.publisher.Flux;
 
 public class ItemRelationshipsEndpoint extends AbstractPageableResponse {
 
@@ -29,11 +30,12 @@ public class ItemRelationshipsEndpoint extends AbstractPageableResponse {
 		protected List<DSRelationship> relationships;
 	}
 
+	public Flux<DSRelationship> streamAll() {
+		return streamAll(ItemRelationshipsEndpoint.class, page -> page.embedded != null ? page.embedded.relationships : null);
+	}
+
 	public List<DSRelationship> getAll() {
-		if (page.getTotalPages() > 1) {
-			throw new UnsupportedOperationException("Results with more than one page are not yet supported");
-		}
-		return Collections.unmodifiableList(embedded.relationships);
+		return streamAll().collectList().map(Collections::unmodifiableList).block();
 	}
 
 }
@@ -11,57 +11,135 @@
 
 package es.sistedes.library.manager.dspace.endpoints;
 
+import java.text.MessageFormat;
 import java.util.Optional;
+import java.util.function.Supplier;
 
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.http.MediaType;
 
-import es.sistedes.library.manager.DSpaceConnectionManager;
 import es.sistedes.library.manager.dspace.model.AbstractPageableResponse;
 import es.sistedes.library.manager.dspace.model.DSAuthor;
-import es.sistedes.library.manager.dspace.model.DSCollection;
+import es.sistedes.library.manager.dspace.model.DSIdentifiable;
+import es.sistedes.library.manager.dspace.model.DSItem;
 import es.sistedes.library.manager.dspace.model.DSPublication;
+import es.sistedes.library.manager.dspace.model.ItemRef;
+import reactor.core.publisher.Mono;
 
 public class ItemsEndpoint extends AbstractPageableResponse {
 
 	public Optional<DSAuthor> getAuthor(String uuid) {
-		return getItem(DSAuthor.class, uuid);
+		return getAuthorAsync(uuid).blockOptional();
 	}
 	
-	public Optional<DSPublication> getPublication(String uuid) {
-		return getItem(DSPublication.class, uuid);
+	public Mono<DSAuthor> getAuthorAsync(String uuid) {
+		return getItemAsync(DSAuthor.class, uuid);
+	}
+	
+	/**
+	 * Retrieves only the identity (UUID, handle and self link) of the item with
+	 * the given UUID, skipping its metadata. Use it instead of the full item when
+	 * it is only needed to refer to it (e.g., to relate it with another item)
+	 * 
+	 * @param uuid
+	 * @return
+	 */
+	public Optional<ItemRef> getItemRef(String uuid) {
+		return getItemRefAsync(uuid).blockOptional();
+	}
+	
+	public Mono<ItemRef> getItemRefAsync(String uuid) {
+		return getItemAsync(ItemRef.class, uuid);
+	}
+	
+	/**
+	 * Retrieves the publication with the given UUID, optionally embedding some of
+	 * its related resources to save further requests
+	 * 
+	 * @param uuid
+	 * @param embeds the projections to embed, e.g., {@link DSItem#EMBED_BUNDLES}
+	 *               or {@link DSItem#EMBED_RELATIONSHIPS}
+	 * @return
+	 */
+	public Optional<DSPublication> getPublication(String uuid, String... embeds) {
+		return getPublicationAsync(uuid, embeds).blockOptional();
+	}
+
+	public Mono<DSPublication> getPublicationAsync(String uuid, String... embeds) {
+		return getItemAsync(DSPublication.class, uuid, embeds);
+	}
+	
+	protected <T> Optional<T> getItem(Class<T> clazz, String uuid, String... embeds) {
+		return getItemAsync(clazz, uuid, embeds).blockOptional();
 	}
 
-	protected <T> Optional<T> getItem(Class<T> clazz, String uuid) {
-		T item = DSpaceConnectionManager.buildClient(getSelfUri()).get().uri(uriBuilder -> uriBuilder.pathSegment(uuid).build()).retrieve()
-				.bodyToMono(clazz).block();
-		return Optional.ofNullable(item);
+	protected <T> Mono<T> getItemAsync(Class<T> clazz, String uuid, String... embeds) {
+		// @formatter:off
+		return connection.getClient(getSelfUri()).get().uri(uriBuilder -> {
+					uriBuilder.pathSegment(uuid);
+					if (embeds.length > 0) {
+						uriBuilder.queryParam("embed", (Object[]) embeds);
+					}
+					return uriBuilder.build();
+				}).retrieve()
+				.bodyToMono(clazz);
+		// @formatter:on
 	}
 	
-	public DSAuthor createAuthor(DSAuthor author, DSCollection owningCollection) {
+	public DSAuthor createAuthor(DSAuthor author, DSIdentifiable owningCollection) {
+		return createAuthorAsync(author, owningCollection).block();
+	}
+	
+	public Mono<DSAuthor> createAuthorAsync(DSAuthor author, DSIdentifiable owningCollection) {
 		// @formatter:off
-		return DSpaceConnectionManager
-				.buildClient(getSelfUri())
+		Supplier<Mono<DSAuthor>> creation = () -> connection
+				.getClient(getSelfUri())
 				.post()
 				.uri((uriBuilder) -> uriBuilder.queryParam("owningCollection", owningCollection.getUuid()).build())
 				.contentType(MediaType.APPLICATION_JSON)
 				.bodyValue(author)
 				.retrieve()
-				.bodyToMono(DSAuthor.class)
-				.block();
+				.bodyToMono(DSAuthor.class);
+		// Authors can only be told apart by their ORCID or their e-mails. Without
+		// them, a retry could create a duplicate, so the creation is not retried
+		String key = StringUtils.isNotBlank(author.getOrcid()) ? author.getOrcid() : author.getEmails().stream().findFirst().orElse(null);
+		if (key == null) {
+			return creation.get();
+		}
+		Supplier<Mono<DSAuthor>> lookup = () -> connection.getDsRoot().searchAuthorsAsync(key)
+				.filter(existing -> key.equals(existing.getOrcid()) || existing.getEmails().contains(key))
+				.next();
+		return connection.getRetryFilter().retryCreation(
+				MessageFormat.format("Creation of author ''{0}''", author.getFullName()), creation, lookup);
 		// @formatter:on
 	}
 	
-	public DSPublication createPublication(DSPublication publication, DSCollection owningCollection) {
+	public DSPublication createPublication(DSPublication publication, DSIdentifiable owningCollection) {
+		return createPublicationAsync(publication, owningCollection).block();
+	}
+	
+	public Mono<DSPublication> createPublicationAsync(DSPublication publication, DSIdentifiable owningCollection) {
 		// @formatter:off
-		return DSpaceConnectionManager
-			.buildClient(getSelfUri())
+		Supplier<Mono<DSPublication>> creation = () -> connection
+			.getClient(getSelfUri())
 			.post()
 			.uri((uriBuilder) -> uriBuilder.queryParam("owningCollection", owningCollection.getUuid()).build())
 			.contentType(MediaType.APPLICATION_JSON)
 			.bodyValue(publication)
 			.retrieve()
-			.bodyToMono(DSPublication.class)
-			.block();
+			.bodyToMono(DSPublication.class);
+		// Publications are uniquely identified by their Sistedes identifier
+		String identifier = publication.getSistedesIdentifier();
+		if (identifier == null) {
+			return creation.get();
+		}
+		Supplier<Mono<DSPublication>> lookup = () -> connection.getDsRoot().getSearchObjectsEndpointAsync()
+			.flatMap(endpoint -> endpoint.newSistedesIdentifierQueryAsync(identifier))
+			.flatMapMany(result -> result.getQueryResults().streamAll())
+			.filter(existing -> identifier.equals(existing.getSistedesIdentifier()))
+			.next();
+		return connection.getRetryFilter().retryCreation(
+				MessageFormat.format("Creation of publication ''{0}''", identifier), creation, lookup);
 		// @formatter:on
 	}
 }
@@ -18,6 +18,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import es.sistedes.library.manager.dspace.model.AbstractPageableResponse;
 import es.sistedes.library.manager.dspace.model.RelationshipType;
+import reactor.core.publisher.Flux;
 
 public class RelationshipTypesEndpoint extends AbstractPageableResponse {
 
@@ -29,11 +30,12 @@ public class RelationshipTypesEndpoint extends AbstractPageableResponse {
 		protected List<RelationshipType> relationshiptypes;
 	}
 
+	public Flux<RelationshipType> streamAll() {
+		return streamAll(RelationshipTypesEndpoint.class, page -> page.embedded != null ? page.embedded.relationshiptypes : null);
+	}
+
 	public List<RelationshipType> getAll() {
-		if (page.getTotalPages() > 1) {
-			throw new UnsupportedOperationException("Results with more than one page are not yet supported");
-		}
-		return Collections.unmodifiableList(embedded.relationshiptypes);
+		return streamAll().collectList().map(Collections::unmodifiableList).block();
 	}
 
 	public RelationshipType getIsAuthorOfPaperRelationship() {
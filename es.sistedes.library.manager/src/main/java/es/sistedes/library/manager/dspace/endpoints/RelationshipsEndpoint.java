@@ -14,37 +14,44 @@ package es.sistedes.library.manager.dspace.endpoints;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.BodyInserters;
 
-import es.sistedes.library.manager.DSpaceConnectionManager;
 import es.sistedes.library.manager.dspace.model.AbstractPageableResponse;
-import es.sistedes.library.manager.dspace.model.DSItem;
+import es.sistedes.library.manager.dspace.model.DSIdentifiable;
 import es.sistedes.library.manager.dspace.model.RelationshipType;
+import reactor.core.publisher.Mono;
 
 public class RelationshipsEndpoint extends AbstractPageableResponse {
 
-	public String createRelationship(RelationshipType type, DSItem elt1, DSItem elt2) {
+	public String createRelationship(RelationshipType type, DSIdentifiable elt1, DSIdentifiable elt2) {
+		return createRelationshipAsync(type, elt1, elt2).block();
+	}
+	
+	public Mono<String> createRelationshipAsync(RelationshipType type, DSIdentifiable elt1, DSIdentifiable elt2) {
 		String data = elt1.getSelfUri() + " \n " + elt2.getSelfUri();
 		// @formatter:off
-		return DSpaceConnectionManager
-				.buildClient(getSelfUri())
+		return connection
+				.getClient(getSelfUri())
 				.post()
 				.uri(uriBuilder -> uriBuilder.queryParam("relationshipType", type.getId()).build())
 				.contentType(MediaType.valueOf("text/uri-list"))
 				.body(BodyInserters.fromValue(data))
 				.retrieve()
-				.bodyToMono(String.class)
-				.block();
+				.bodyToMono(String.class);
 		// @formatter:on
 	}
 	
 	public void deleteRelationship(Integer id) {
+		deleteRelationshipAsync(id).block();
+	}
+	
+	public Mono<Void> deleteRelationshipAsync(Integer id) {
 		// @formatter:off
-		DSpaceConnectionManager
-				.buildClient(getSelfUri())
+		return connection
+				.getClient(getSelfUri())
 				.delete()
 				.uri(uriBuilder -> uriBuilder.pathSegment(String.valueOf(id)).build())
 				.retrieve()
 				.toBodilessEntity()
-				.block();
+				.then();
 		// @formatter:on
 	}
 }
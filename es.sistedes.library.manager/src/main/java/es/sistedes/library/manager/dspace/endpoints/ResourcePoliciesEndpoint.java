@@ -14,42 +14,27 @@ package es.sistedes.library.manager.dspace.endpoints;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
 
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-
-import es.sistedes.library.manager.DSpaceConnectionManager;
+import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
 import es.sistedes.library.manager.dspace.model.AbstractHateoas;
 import es.sistedes.library.manager.dspace.model.AbstractPageableResponse;
 import es.sistedes.library.manager.dspace.model.DSResourcePolicy;
 import es.sistedes.library.manager.dspace.model.Link;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public class ResourcePoliciesEndpoint extends AbstractHateoas {
 
-	protected static class SearchResourcePoliciciesResponse extends AbstractPageableResponse {
-		@JsonProperty("_embedded")
-		protected SearchResourcePoliciciesResponseEmbedded embedded;
-	
-		protected static class SearchResourcePoliciciesResponseEmbedded  {
-			
-			@JsonProperty
-			protected List<DSResourcePolicy> resourcepolicies;
-			
-			public List<DSResourcePolicy> getAll() {
-				return Collections.unmodifiableList(resourcepolicies);
-			}
-		};
-		public List<DSResourcePolicy> getAll() {
-			return Collections.unmodifiableList(embedded != null ? embedded.getAll() : Collections.emptyList());
-		}
-	};
-
-	public ResourcePoliciesEndpoint(URI selfUri) {
+	public ResourcePoliciesEndpoint(DSpaceConnection connection, URI selfUri) {
+		this.connection = connection;
 		try {
 			links = new HashMap<>();
 			Link selfLink = new Link(selfUri.toURL());
@@ -60,29 +45,72 @@ public class ResourcePoliciesEndpoint extends AbstractHateoas {
 	}
 	
 	public List<DSResourcePolicy> getResourcePoliciesFor(String uuid) {
-		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<>();
-		parameters.add("uuid", uuid);
+		return getResourcePoliciesForAsync(uuid).collectList().map(Collections::unmodifiableList).block();
+	}
+	
+	public Flux<DSResourcePolicy> getResourcePoliciesForAsync(String uuid) {
+		return getResourcePoliciesForAsync(uuid, null);
+	}
+	
+	/**
+	 * Returns the policies of the given resource, optionally filtered by action
+	 * on the server side
+	 * 
+	 * @param uuid
+	 * @param action the action (e.g., {@link DSResourcePolicy#ACTION_READ}), or
+	 *               <code>null</code> to return all the policies
+	 * @return
+	 */
+	public Flux<DSResourcePolicy> getResourcePoliciesForAsync(String uuid, String action) {
 		// @formatter:off
-		return DSpaceConnectionManager
-					.buildClient(getSelfUri())
-					.get()
-					.uri((uriBuilder) -> uriBuilder.pathSegment("search", "resource").queryParam("uuid", uuid).build())
-					.retrieve()
-					.bodyToMono(SearchResourcePoliciciesResponse.class)
-					.block()
-					.getAll();
+		URI uri = UriComponentsBuilder.fromUri(getSelfUri())
+				.pathSegment("search", "resource")
+				.queryParam("uuid", uuid)
+				.queryParamIfPresent("action", Optional.ofNullable(action))
+				.encode().build().toUri();
 		// @formatter:on
+		return AbstractPageableResponse.streamElements(connection, uri, DSResourcePolicy.class, "resourcepolicies");
 	}
 	
 	public void deleteResourcePolicy(Integer policyId) {
+		deleteResourcePolicyAsync(policyId).block();
+	}
+	
+	public Mono<Void> deleteResourcePolicyAsync(Integer policyId) {
 		// @formatter:off
-		DSpaceConnectionManager
-				.buildClient(getSelfUri())
+		return connection
+				.getClient(getSelfUri())
 				.delete()
 				.uri((uriBuilder) -> uriBuilder.pathSegment("{policyId}").build(policyId))
 				.retrieve()
 				.toBodilessEntity()
-				.block();
+				.then();
+		// @formatter:on
+	}
+	
+	public int deleteResourcePolicies(Collection<String> uuids, String action) {
+		return deleteResourcePoliciesAsync(uuids, action).block();
+	}
+	
+	/**
+	 * Deletes the policies with the given action of all the given resources. The
+	 * policies of the different resources are looked up and deleted concurrently.
+	 * Policies that no longer exist (e.g., because a retried DELETE had already
+	 * succeeded) are ignored.
+	 * 
+	 * @param uuids
+	 * @param action
+	 * @return the number of deleted policies
+	 */
+	public Mono<Integer> deleteResourcePoliciesAsync(Collection<String> uuids, String action) {
+		// @formatter:off
+		return Flux.fromIterable(uuids)
+				.flatMap(uuid -> getResourcePoliciesForAsync(uuid, action))
+				.filter(policy -> action.equals(policy.getAction()))
+				.flatMap(policy -> deleteResourcePolicyAsync(policy.getId())
+						.thenReturn(1)
+						.onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.just(0)))
+				.reduce(0, Integer::sum);
 		// @formatter:on
 	}
 }
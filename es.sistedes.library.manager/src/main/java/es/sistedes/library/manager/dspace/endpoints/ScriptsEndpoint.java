@@ -17,28 +17,31 @@ import org.springframework.http.MediaType;
 import org.springframework.http.client.MultipartBodyBuilder;
 import org.springframework.web.reactive.function.BodyInserters;
 
-import es.sistedes.library.manager.DSpaceConnectionManager;
 import es.sistedes.library.manager.dspace.model.AbstractHateoas;
 import es.sistedes.library.manager.dspace.model.DSProcess;
 import es.sistedes.library.manager.dspace.model.DSProcess.DSParameter;
+import reactor.core.publisher.Mono;
 
 public class ScriptsEndpoint extends AbstractHateoas {
 
 	public DSProcess executeScript(String script, List<DSParameter> parameters) {
+		return executeScriptAsync(script, parameters).block();
+	}
+	
+	public Mono<DSProcess> executeScriptAsync(String script, List<DSParameter> parameters) {
 		
 		MultipartBodyBuilder builder = new MultipartBodyBuilder();
 		builder.part("properties", parameters);
 
 		// @formatter:off
-		return DSpaceConnectionManager
-			.buildClient(getSelfUri())
+		return connection
+			.getClient(getSelfUri())
 			.post()
 			.uri((uriBuilder) -> uriBuilder.pathSegment(script, "processes").build())
 			.contentType(MediaType.MULTIPART_FORM_DATA)
 			.body(BodyInserters.fromMultipartData(builder.build()))
 			.retrieve()
-			.bodyToMono(DSProcess.class)
-			.block();
+			.bodyToMono(DSProcess.class);
 		// @formatter:on
 	}
 }
@@ -11,12 +11,16 @@
 
 package es.sistedes.library.manager.dspace.endpoints;
 
-import es.sistedes.library.manager.DSpaceConnectionManager;
 import es.sistedes.library.manager.dspace.model.AbstractHateoas;
+import reactor.core.publisher.Mono;
 
 public class SearchEndpoint extends AbstractHateoas {
 
 	public SearchObjectsEndpoint<?> getSearchObjectsEndpoint() {
-		return DSpaceConnectionManager.buildClient().get().uri(getLinkUri("objects").get()).retrieve().bodyToMono(SearchObjectsEndpoint.class).block();
+		return getSearchObjectsEndpointAsync().block();
+	}
+	
+	public Mono<SearchObjectsEndpoint<?>> getSearchObjectsEndpointAsync() {
+		return connection.getClient().get().uri(getLinkUri("objects").get()).retrieve().bodyToMono(SearchObjectsEndpoint.class).map(endpoint -> (SearchObjectsEndpoint<?>) endpoint);
 	}
 }
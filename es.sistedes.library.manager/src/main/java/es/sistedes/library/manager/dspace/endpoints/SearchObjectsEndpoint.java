@@ -12,25 +12,42 @@
 package es.sistedes.library.manager.dspace.endpoints;
 
 import java.net.URI;
+import java.time.Instant;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JavaType;
 
-import es.sistedes.library.manager.DSpaceConnectionManager;
+import es.sistedes.library.manager.dspace.endpoints.SearchObjectsEndpoint.SearchObjectsResponseEmbedded.SearchResult.SearchResultEmbedded.SearchResultObject;
 import es.sistedes.library.manager.dspace.model.AbstractHateoas;
 import es.sistedes.library.manager.dspace.model.AbstractPageableResponse;
 import es.sistedes.library.manager.dspace.model.DSAuthor;
 import es.sistedes.library.manager.dspace.model.DSItem;
+import es.sistedes.library.manager.dspace.model.DSPublication;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public class SearchObjectsEndpoint<T> extends AbstractHateoas {
 
+	private static final String ORCID_FIELD = "person.identifier.orcid";
+	private static final String EMAIL_FIELD = "person.email";
+
 	@JsonProperty("_embedded")
 	protected SearchObjectsResponseEmbedded<T> embedded;
 
@@ -43,6 +60,14 @@ public class SearchObjectsEndpoint<T> extends AbstractHateoas {
 
 			@JsonProperty("_embedded")
 			protected SearchResultEmbedded<T> embedded;
+			
+			/**
+			 * Function to retrieve the following pages of this result. The
+			 * following pages are wrapped in a {@link SearchObjectsEndpoint},
+			 * which is why they cannot be retrieved as a plain {@link SearchResult}
+			 */
+			@JsonIgnore
+			protected Function<URI, Mono<SearchResult<T>>> pageFetcher;
 
 			protected static class SearchResultEmbedded<T> {
 				
@@ -66,11 +91,11 @@ public class SearchObjectsEndpoint<T> extends AbstractHateoas {
 					}
 				}
 			};
+			public Flux<T> streamAll() {
+				return streamAll(pageFetcher, page -> page.embedded != null ? page.embedded.objects : null).map(o -> o.embedded.indexableObject);
+			}
 			public Collection<T> getAll() {
-				if (page.getTotalPages() > 1) {
-					throw new UnsupportedOperationException("Results with more than one page are not yet supported");
-				}
-				return embedded.objects.stream().map(o -> o.embedded.indexableObject).collect(Collectors.toUnmodifiableList());
+				return streamAll().collectList().map(Collections::unmodifiableList).block();
 			}
 			public Optional<T> getFirst() {
 				return embedded.objects.stream().map(o -> o.embedded.indexableObject).findFirst();
@@ -79,29 +104,160 @@ public class SearchObjectsEndpoint<T> extends AbstractHateoas {
 	};
 	
 	public SearchObjectsEndpoint<DSAuthor> newAuthorQuery(String query) {
+		return newAuthorQuery(query, null);
+	}
+	
+	public SearchObjectsEndpoint<DSAuthor> newAuthorQuery(String query, Integer pageSize) {
+		return newAuthorQueryAsync(query, pageSize).block();
+	}
+	
+	public Mono<SearchObjectsEndpoint<DSAuthor>> newAuthorQueryAsync(String query, Integer pageSize) {
+		return newQueryAsync(new ParameterizedTypeReference<SearchObjectsEndpoint<DSAuthor>>(){}, query, getAuthorQueryParameters(query, pageSize));
+	}
+
+	/**
+	 * Returns a lazy {@link Flux} with all the authors matching the given query.
+	 * Unlike {@link #newAuthorQueryAsync(String, Integer)}, the pages of results
+	 * are not decoded as a whole, but one author at a time while they are being
+	 * received.
+	 * 
+	 * @param query
+	 * @param pageSize
+	 * @return
+	 */
+	public Flux<DSAuthor> streamAuthorQueryAsync(String query, Integer pageSize) {
+		return streamQueryAsync(DSAuthor.class, getAuthorQueryParameters(query, pageSize));
+	}
+
+	/**
+	 * Returns a lazy {@link Flux} with all the authors in the given scope (e.g.,
+	 * the authors collection), which are read page by page while they are
+	 * consumed. Authors are sorted by their last modification date.
+	 * 
+	 * @param scope         UUID of the community or collection, or
+	 *                      <code>null</code>
+	 * @param modifiedSince if not <code>null</code>, only the authors modified
+	 *                      since then (inclusive) are returned
+	 * @param pageSize
+	 * @return
+	 */
+	public Flux<DSAuthor> streamAuthorsAsync(String scope, Instant modifiedSince, Integer pageSize) {
+		MultiValueMap<String, String> parameters = getAuthorQueryParameters(null, pageSize);
+		if (scope != null) {
+			parameters.add("scope", scope);
+		}
+		if (modifiedSince != null) {
+			parameters.add("query", "lastModified:[" + modifiedSince + " TO *]");
+		}
+		parameters.add("sort", "lastModified,ASC");
+		return streamQueryAsync(DSAuthor.class, parameters);
+	}
+
+	/**
+	 * Returns the authors with any of the given ORCIDs, which are looked up with a
+	 * single query (i.e., <code>person.identifier.orcid:"..." OR ...</code>).
+	 * ORCIDs are compared in their bare form (see
+	 * {@link DSAuthor#normalizeOrcid(String)}), so that they also match ORCIDs
+	 * stored as URIs.
+	 * 
+	 * @param orcids
+	 * @return a map from each ORCID to the (first) author having it. ORCIDs
+	 *         without an author are not included.
+	 */
+	public Mono<Map<String, DSAuthor>> findAuthorsByOrcidAsync(Collection<String> orcids) {
+		return findAuthorsAsync(ORCID_FIELD, orcids, author -> Stream.ofNullable(author.getOrcid()), DSAuthor::normalizeOrcid);
+	}
+
+	/**
+	 * Returns the authors with any of the given e-mails (ignoring their casing),
+	 * which are looked up with a single query (i.e.,
+	 * <code>person.email:"..." OR ...</code>)
+	 * 
+	 * @param emails
+	 * @return a map from each e-mail to the (first) author having it. E-mails
+	 *         without an author are not included.
+	 */
+	public Mono<Map<String, DSAuthor>> findAuthorsByEmailAsync(Collection<String> emails) {
+		return findAuthorsAsync(EMAIL_FIELD, emails, author -> author.getEmails().stream(), email -> email.trim().toLowerCase(Locale.ROOT));
+	}
+
+	private Mono<Map<String, DSAuthor>> findAuthorsAsync(String field, Collection<String> identifiers, Function<DSAuthor, Stream<String>> authorIdentifiers,
+			Function<String, String> normalizer) {
+		// Normalized identifiers to the identifiers as they were given
+		Map<String, List<String>> requested = identifiers.stream().filter(StringUtils::isNotBlank).distinct().collect(Collectors.groupingBy(normalizer));
+		if (requested.isEmpty()) {
+			return Mono.just(Collections.emptyMap());
+		}
+		// @formatter:off
+		MultiValueMap<String, String> parameters = getAuthorQueryParameters(null, requested.size());
+		parameters.add("query", requested.keySet().stream()
+				.map(identifier -> field + ":" + quote(identifier))
+				.collect(Collectors.joining(" OR ")));
+		return streamQueryAsync(DSAuthor.class, parameters)
+				.collect(() -> new LinkedHashMap<String, DSAuthor>(), (result, author) -> authorIdentifiers.apply(author)
+						.filter(StringUtils::isNotBlank)
+						.map(normalizer)
+						.filter(requested::containsKey)
+						.forEach(identifier -> requested.get(identifier).forEach(given -> result.putIfAbsent(given, author))))
+				.map(Collections::unmodifiableMap);
+		// @formatter:on
+	}
+
+	private static MultiValueMap<String, String> getAuthorQueryParameters(String query, Integer pageSize) {
 		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<>();
 		parameters.add("f.entityType", DSItem.Type.AUTHOR.getName() + ",equals");
-		parameters.add("query", query.replaceAll(":", "")); // In some cases, a URL is provided instead on an email.
-															// In such a case, remove the colon since the API fails to process it
-		return newQuery(new ParameterizedTypeReference<SearchObjectsEndpoint<DSAuthor>>(){}, query, parameters);
+		if (query != null) {
+			parameters.add("query", query.replaceAll(":", "")); // In some cases, a URL is provided instead on an email.
+																// In such a case, remove the colon since the API fails to process it
+		}
+		if (pageSize != null) {
+			parameters.add("size", String.valueOf(pageSize));
+		}
+		return parameters;
 	}
 
-	protected <U> U newQuery(ParameterizedTypeReference<U> returnTypeReference, String query, MultiValueMap<String, String> parameters) {
-		MultiValueMap<String, String> parameters2 = new LinkedMultiValueMap<>(parameters);
-		parameters2.add("dsoType", "item");
-		parameters2.add("sort", "score,DESC");
-		URI uri = getSelfUri();
+	public Mono<SearchObjectsEndpoint<DSPublication>> newSistedesIdentifierQueryAsync(String identifier) {
+		MultiValueMap<String, String> parameters = new LinkedMultiValueMap<>();
+		parameters.add("query", "dc.identifier.sistedes:" + quote(identifier));
+		return newQueryAsync(new ParameterizedTypeReference<SearchObjectsEndpoint<DSPublication>>(){}, identifier, parameters);
+	}
+
+	/**
+	 * Returns the given value as a quoted phrase of a search query, escaping its
+	 * backslashes and quotes
+	 * 
+	 * @param value
+	 * @return
+	 */
+	private static String quote(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+	protected <U> Mono<SearchObjectsEndpoint<U>> newQueryAsync(ParameterizedTypeReference<SearchObjectsEndpoint<U>> returnTypeReference, String query, MultiValueMap<String, String> parameters) {
 		// @formatter:off
-		return DSpaceConnectionManager.buildClient().get()
-				.uri(uriBuilder -> uriBuilder
-						.scheme(uri.getScheme())
-						.host(uri.getHost())
-						.port(uri.getPort())
-						.path(uri.getPath()).queryParams(parameters2).build())
-				.retrieve().bodyToMono(returnTypeReference).block();
+		return connection.getClient().get()
+				.uri(getQueryUri(parameters))
+				.retrieve().bodyToMono(returnTypeReference)
+				.doOnNext(result -> result.getQueryResults().pageFetcher = next -> connection.getClient().get().uri(next)
+						.retrieve().bodyToMono(returnTypeReference).map(SearchObjectsEndpoint::getQueryResults));
 		// @formatter:on
 	}
 	
+	protected <U> Flux<U> streamQueryAsync(Class<U> resultClass, MultiValueMap<String, String> parameters) {
+		JavaType resultObjectType = connection.getResponseObjectMapper().getTypeFactory().constructParametricType(SearchResultObject.class, resultClass);
+		// @formatter:off
+		return AbstractPageableResponse.<SearchResultObject<U>>streamElements(connection, getQueryUri(parameters), resultObjectType, "_embedded", "searchResult", "_embedded", "objects")
+				.map(o -> o.embedded.indexableObject);
+		// @formatter:on
+	}
+
+	private URI getQueryUri(MultiValueMap<String, String> parameters) {
+		MultiValueMap<String, String> parameters2 = new LinkedMultiValueMap<>(parameters);
+		parameters2.add("dsoType", "item");
+		parameters2.putIfAbsent("sort", List.of("score,DESC"));
+		return UriComponentsBuilder.fromUri(getSelfUri()).replaceQuery(null).queryParams(parameters2).encode().build().toUri();
+	}
+
 	public SearchObjectsEndpoint.SearchObjectsResponseEmbedded.SearchResult<T> getQueryResults() {
 		return embedded.searchResult;
 	}
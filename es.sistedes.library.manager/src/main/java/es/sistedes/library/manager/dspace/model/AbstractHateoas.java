@@ -16,16 +16,32 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Optional;
 
+import com.fasterxml.jackson.annotation.JacksonInject;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
+
 public abstract class AbstractHateoas {
 	
+	/**
+	 * The {@link DSpaceConnection} this object has been retrieved from. It is
+	 * injected when the object is deserialized by the connection's client.
+	 */
+	@JacksonInject
+	@JsonIgnore
+	protected DSpaceConnection connection;
+	
 	@JsonProperty(value = "_links", access = JsonProperty.Access.WRITE_ONLY)
 	@JsonFormat(with = JsonFormat.Feature.ACCEPT_SINGLE_VALUE_AS_ARRAY)
 	protected HashMap<String, List<Link>> links;
 	
+	@JsonIgnore
+	public DSpaceConnection getConnection() {
+		return connection;
+	}
+	
 	@JsonIgnore
 	public Optional<URI> getLinkUri(String name) {
 		try {
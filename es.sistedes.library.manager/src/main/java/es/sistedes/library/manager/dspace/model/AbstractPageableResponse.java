@@ -11,11 +11,216 @@
 
 package es.sistedes.library.manager.dspace.model;
 
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.JavaType;
+
+import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
+import es.sistedes.library.manager.dspace.client.StreamingPageDecoder;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 
 public abstract class AbstractPageableResponse extends AbstractHateoas {
-		
+
+	/**
+	 * Default number of elements to request per page when the page size can be
+	 * chosen by the client
+	 */
+	public static final int DEFAULT_PAGE_SIZE = 100;
+
+	/**
+	 * Number of pages that are requested in advance while the elements of the
+	 * current page are being consumed
+	 */
+	private static final int PREFETCH_PAGES = 1;
+
 	@JsonProperty("page")
 	protected Page page;
-	
+
+	/**
+	 * Returns a lazy {@link Flux} with the elements of this page and all the
+	 * following ones. Pages are retrieved by following the <code>next</code>
+	 * links, and the next page is requested while the elements of the current
+	 * one are being consumed, so that at most {@value #PREFETCH_PAGES} page(s)
+	 * are kept in memory in addition to the current one.
+	 *
+	 * @param <P>          the type of the pages
+	 * @param <T>          the type of the elements
+	 * @param pageFetcher  function that retrieves the page at the given
+	 *                     {@link URI}
+	 * @param pageElements function that returns the elements of a given page
+	 * @return
+	 */
+	@SuppressWarnings("unchecked")
+	protected <P extends AbstractPageableResponse, T> Flux<T> streamAll(Function<URI, Mono<P>> pageFetcher, Function<P, List<T>> pageElements) {
+		// @formatter:off
+		return Mono.just((P) this)
+				.expand(current -> current.getLinkUri("next").map(pageFetcher).orElse(Mono.empty()))
+				.concatMapIterable(current -> {
+					List<T> elements = pageElements.apply(current);
+					return elements != null ? elements : Collections.emptyList();
+				}, PREFETCH_PAGES);
+		// @formatter:on
+	}
+
+	/**
+	 * Convenience method for {@link #streamAll(Function, Function)} when the
+	 * following pages are of the same class as this page
+	 *
+	 * @param <P>          the type of the pages
+	 * @param <T>          the type of the elements
+	 * @param pageClass    the {@link Class} of the pages
+	 * @param pageElements function that returns the elements of a given page
+	 * @return
+	 */
+	protected <P extends AbstractPageableResponse, T> Flux<T> streamAll(Class<P> pageClass, Function<P, List<T>> pageElements) {
+		return streamAll(uri -> connection.getClient().get().uri(uri).retrieve().bodyToMono(pageClass), pageElements);
+	}
+
+	/**
+	 * Returns a lazy {@link Flux} with the elements of the paged collection at
+	 * <code>uri</code> (e.g., the relationships of an item), in the array
+	 * <code>_embedded.&lt;embeddedName&gt;</code> of each page. Unlike
+	 * {@link #streamAll(Function, Function)}, pages are not decoded as a whole:
+	 * elements are decoded and emitted one at a time while each page is being
+	 * received (see {@link StreamingPageDecoder}), so that memory usage does not
+	 * depend on the size of the first page. As in
+	 * {@link #streamAll(Function, Function)}, the next page is requested in
+	 * advance, as soon as its link is decoded, and at most one page is kept in
+	 * memory in addition to the current one.
+	 * <p>
+	 * Since their bodies cannot be buffered, these requests are neither coalesced
+	 * nor served from the HTTP cache, so this method is meant for collections
+	 * that may be large (e.g., the relationships of an author, or search
+	 * results). Small collections (e.g., the bundles of an item) should be
+	 * retrieved as whole pages instead.
+	 *
+	 * @param <T>
+	 * @param connection
+	 * @param uri
+	 * @param elementClass
+	 * @param embeddedName
+	 * @return
+	 */
+	public static <T> Flux<T> streamElements(DSpaceConnection connection, URI uri, Class<T> elementClass, String embeddedName) {
+		return streamElements(connection, uri, connection.getResponseObjectMapper().constructType(elementClass), "_embedded", embeddedName);
+	}
+
+	/**
+	 * Variant of {@link #streamElements(DSpaceConnection, URI, Class, String)} for
+	 * generic elements, or for elements that are nested deeper in the pages
+	 *
+	 * @param <T>
+	 * @param connection
+	 * @param uri
+	 * @param elementType
+	 * @param elementsPath the names of the fields leading to the array of
+	 *                     elements, see {@link StreamingPageDecoder}
+	 * @return
+	 */
+	public static <T> Flux<T> streamElements(DSpaceConnection connection, URI uri, JavaType elementType, String... elementsPath) {
+		return Flux.defer(() -> {
+			AtomicReference<Mono<PrefetchedPage<T>>> following = new AtomicReference<>();
+			// The retrieval of the page being prefetched, which is cancelled if the
+			// stream ends (e.g., it is cancelled after its first elements) before
+			// reaching that page
+			Disposable.Swap prefetching = Disposables.swap();
+			// @formatter:off
+			return AbstractPageableResponse.<T>streamPage(connection, uri, elementType, elementsPath, next -> following.set(prefetchPage(connection, next, elementType, elementsPath, prefetching)))
+					.concatWith(Flux.defer(() -> following.get() != null ? streamPrefetched(connection, following.get(), elementType, elementsPath, prefetching) : Flux.empty()))
+					.doFinally(signal -> prefetching.dispose());
+			// @formatter:on
+		});
+	}
+
+	/**
+	 * Streams the elements of the page at <code>uri</code>, and calls
+	 * <code>onNextLink</code> as soon as the link to the next page is decoded,
+	 * which may happen well before the elements have been consumed
+	 */
+	private static <T> Flux<T> streamPage(DSpaceConnection connection, URI uri, JavaType elementType, String[] elementsPath, Consumer<URI> onNextLink) {
+		return Flux.defer(() -> {
+			StreamingPageDecoder<T> decoder = new StreamingPageDecoder<>(connection.getResponseObjectMapper(), elementType, elementsPath);
+			AtomicBoolean notified = new AtomicBoolean();
+			Runnable checkNextLink = () -> {
+				if (!notified.get()) {
+					decoder.getNextLink().ifPresent(next -> {
+						notified.set(true);
+						onNextLink.accept(next);
+					});
+				}
+			};
+			// @formatter:off
+			return connection.getClient().get()
+					.uri(uri)
+					.attribute(StreamingPageDecoder.STREAMED_RESPONSE_ATTRIBUTE, true)
+					.retrieve()
+					.bodyToFlux(DataBuffer.class)
+					.concatMapIterable(buffer -> {
+						List<T> decoded = decoder.decode(buffer);
+						checkNextLink.run();
+						return decoded;
+					})
+					.doOnDiscard(DataBuffer.class, DataBufferUtils::release)
+					.concatWith(Flux.defer(() -> {
+						List<T> decoded = decoder.endOfInput();
+						checkNextLink.run();
+						return Flux.fromIterable(decoded);
+					}));
+			// @formatter:on
+		});
+	}
+
+	/**
+	 * Starts retrieving the page at <code>uri</code> right away. Its elements are
+	 * kept in memory until they are consumed, but the page that follows it is not
+	 * requested until then, so that at most one page is prefetched. The retrieval
+	 * replaces the previous one (which has already been consumed) in
+	 * <code>prefetching</code>, so that it can be cancelled.
+	 */
+	private static <T> Mono<PrefetchedPage<T>> prefetchPage(DSpaceConnection connection, URI uri, JavaType elementType, String[] elementsPath,
+			Disposable.Swap prefetching) {
+		PrefetchedPage<T> page = new PrefetchedPage<>();
+		Sinks.One<PrefetchedPage<T>> prefetched = Sinks.one();
+		// Errors are kept until the page is consumed, and they are never reported
+		// if the page is not reached, since its retrieval is cancelled then
+		// @formatter:off
+		prefetching.update(AbstractPageableResponse.<T>streamPage(connection, uri, elementType, elementsPath, next -> page.next = next)
+				.collectList()
+				.subscribe(elements -> {
+					page.elements = elements;
+					prefetched.tryEmitValue(page);
+				}, prefetched::tryEmitError));
+		// @formatter:on
+		return prefetched.asMono();
+	}
+
+	private static <T> Flux<T> streamPrefetched(DSpaceConnection connection, Mono<PrefetchedPage<T>> prefetched, JavaType elementType, String[] elementsPath,
+			Disposable.Swap prefetching) {
+		return prefetched.flatMapMany(page -> {
+			if (page.next == null) {
+				return Flux.fromIterable(page.elements);
+			}
+			Mono<PrefetchedPage<T>> following = prefetchPage(connection, page.next, elementType, elementsPath, prefetching);
+			return Flux.fromIterable(page.elements).concatWith(Flux.defer(() -> streamPrefetched(connection, following, elementType, elementsPath, prefetching)));
+		});
+	}
+
+	private static class PrefetchedPage<T> {
+		private List<T> elements;
+		private URI next;
+	}
 }
@@ -11,8 +11,10 @@
 
 package es.sistedes.library.manager.dspace.model;
 
-import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.StringUtils;
@@ -22,6 +24,8 @@ import es.sistedes.library.manager.proceedings.model.Signature;
 
 public class DSAuthor extends DSItem {
 
+	private static final Pattern ORCID = Pattern.compile("\\d{4}-\\d{4}-\\d{4}-\\d{3}[\\dX]", Pattern.CASE_INSENSITIVE);
+
 	public DSAuthor() {
 		metadata.setType(Type.AUTHOR.getName());
 	}
@@ -54,6 +58,34 @@ public class DSAuthor extends DSItem {
 		metadata.setPersonOrcid(orcid);
 	}
 
+	/**
+	 * Returns the bare form (i.e., <code>NNNN-NNNN-NNNN-NNNN</code>) of the given
+	 * ORCID, which may also be given as a URI (e.g.,
+	 * <code>https://orcid.org/NNNN-NNNN-NNNN-NNNN</code>). Values that do not
+	 * contain an ORCID are only trimmed.
+	 * 
+	 * @param orcid
+	 * @return
+	 */
+	public static String normalizeOrcid(String orcid) {
+		if (orcid == null) {
+			return null;
+		}
+		Matcher matcher = ORCID.matcher(orcid);
+		return matcher.find() ? matcher.group().toUpperCase(Locale.ROOT) : orcid.trim();
+	}
+
+	/**
+	 * Whether this author has the given ORCID, comparing both of them in their
+	 * bare form (see {@link #normalizeOrcid(String)})
+	 * 
+	 * @param orcid
+	 * @return
+	 */
+	public boolean hasOrcid(String orcid) {
+		return StringUtils.isNotBlank(orcid) && StringUtils.equals(normalizeOrcid(getOrcid()), normalizeOrcid(orcid));
+	}
+
 	public List<String> getEmails() {
 		return metadata.getPersonEmails().stream().map(e -> e.toLowerCase()).collect(Collectors.toList());
 	}
@@ -109,7 +141,7 @@ public class DSAuthor extends DSItem {
 	}
 
 	public static DSAuthor createAuthor(DSRoot dsRoot, Author author) {
-		DSCollection authorsCollection = getAuthorsCollection(dsRoot);
+		DSCollection authorsCollection = dsRoot.getAuthorsCollection();
 		DSAuthor result = new DSAuthor();
 		for (Signature signature : author.getSignatures()) {
 			if (StringUtils.equals(signature.getFullName(), result.getFullName())) {
@@ -135,25 +167,6 @@ public class DSAuthor extends DSItem {
 		return dsRoot.getItemsEndpoint().createAuthor(result, authorsCollection);
 	}
 
-	// Typically, this application wil run on a single DSpace site, so dsRoot will
-	// be always the same
-	// Thus, we will use a simple cache to avoid querying for the Author collection
-	// continuously
-	private static DSRoot cachedDSRoot;
-	private static DSCollection cachedAuthorsCollection;
-
-	synchronized private static DSCollection getAuthorsCollection(DSRoot dsRoot) {
-		if (dsRoot.equals(cachedDSRoot) && cachedAuthorsCollection != null) {
-			return cachedAuthorsCollection;
-		}
-		Collection<DSCommunity> topCommunities = dsRoot.getCommunitiesEndpoint().getSearchEndpoint().getSearchTopEndpoint().getAll();
-		DSCommunity sistedesCommunity = topCommunities.stream().filter(c -> c.getName().equals("Archivo documental de Sistedes")).findFirst().orElseThrow();
-		List<DSCollection> collections = sistedesCommunity.getCollections();
-		cachedAuthorsCollection = collections.stream().filter(c -> c.getName().equals("Autores")).findAny().orElseThrow();
-		cachedDSRoot = dsRoot;
-		return cachedAuthorsCollection;
-	}
-
 	/**
 	 * This method should no longer be used
 	 * 
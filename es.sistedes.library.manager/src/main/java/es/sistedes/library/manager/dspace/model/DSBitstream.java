@@ -18,6 +18,9 @@ public class DSBitstream extends AbstractHateoas {
 	@JsonProperty
 	protected String name;
 
+	@JsonProperty
+	protected Long sizeBytes;
+
 	/**
 	 * @return the name
 	 */
@@ -31,4 +34,11 @@ public class DSBitstream extends AbstractHateoas {
 	public void setName(String name) {
 		this.name = name;
 	}
+
+	/**
+	 * @return the size in bytes, or <code>null</code> if unknown
+	 */
+	public Long getSizeBytes() {
+		return sizeBytes;
+	}
 }
@@ -11,7 +11,11 @@
 
 package es.sistedes.library.manager.dspace.model;
 
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.springframework.core.io.AbstractResource;
 import org.springframework.http.MediaType;
@@ -20,8 +24,9 @@ import org.springframework.web.reactive.function.BodyInserters;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
-import es.sistedes.library.manager.DSpaceConnectionManager;
 import es.sistedes.library.manager.dspace.endpoints.BitstreamsEndpoint;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public class DSBundle extends AbstractHateoas {
 
@@ -31,6 +36,18 @@ public class DSBundle extends AbstractHateoas {
 	@JsonProperty
 	protected String name;
 	
+	/**
+	 * Bitstreams embedded in the bundle when it has been retrieved as part of a
+	 * {@link DSItem#EMBED_BUNDLES} projection
+	 */
+	@JsonProperty(value = "_embedded", access = JsonProperty.Access.WRITE_ONLY)
+	protected DSBundleEmbedded embedded;
+	
+	protected static class DSBundleEmbedded {
+		@JsonProperty
+		protected BitstreamsEndpoint bitstreams;
+	}
+	
 	public DSBundle() {
 	}
 		
@@ -60,32 +77,58 @@ public class DSBundle extends AbstractHateoas {
 	}
 	
 	public DSBitstream createBitstreamFrom(AbstractResource resource, String bitstreamName) {
+		return createBitstreamFromAsync(resource, bitstreamName).block();
+	}
+	
+	public Mono<DSBitstream> createBitstreamFromAsync(AbstractResource resource, String bitstreamName) {
+		// The embedded bitstreams, if any, are no longer up to date
+		embedded = null;
 		DSBitstream bitstream = new DSBitstream();
 		bitstream.setName(bitstreamName);
 		MultipartBodyBuilder builder = new MultipartBodyBuilder();
 		builder.part("file", resource);
 		builder.part("properties", bitstream);
 		// @formatter:off
-		return DSpaceConnectionManager
-				.buildClient(getLinkUri("bitstreams").get())
+		Supplier<Mono<DSBitstream>> creation = () -> connection
+				.getClient(getLinkUri("bitstreams").get())
 				.post()
 				.contentType(MediaType.MULTIPART_FORM_DATA)
 				.body(BodyInserters.fromMultipartData(builder.build()))
 				.retrieve()
-				.bodyToMono(DSBitstream.class)
-				.block();
+				.bodyToMono(DSBitstream.class);
+		// If the upload failed but the bitstream was stored anyway, it is in the bundle
+		Supplier<Mono<DSBitstream>> lookup = () -> getBitstreamsAsync()
+				.filter(existing -> bitstreamName.equals(existing.getName()))
+				.filter(existing -> existing.getSizeBytes() == null || existing.getSizeBytes() == contentLength(resource))
+				.next();
+		return connection.getRetryFilter().retryCreation(
+				MessageFormat.format("Upload of bitstream ''{0}''", bitstreamName), creation, lookup);
 		// @formatter:on
 	}
 	
+	private static long contentLength(AbstractResource resource) {
+		try {
+			return resource.contentLength();
+		} catch (IOException e) {
+			return -1;
+		}
+	}
+	
 	public List<DSBitstream> getBitstreams() {
+		return getBitstreamsAsync().collectList().map(Collections::unmodifiableList).block();
+	}
+	
+	public Flux<DSBitstream> getBitstreamsAsync() {
+		if (embedded != null && embedded.bitstreams != null) {
+			return embedded.bitstreams.streamAll();
+		}
 		// @formatter:off
-		return DSpaceConnectionManager
-				.buildClient(getLinkUri("bitstreams").get())
+		return connection
+				.getClient(getLinkUri("bitstreams").get())
 				.get()
 				.retrieve()
 				.bodyToMono(BitstreamsEndpoint.class)
-				.block()
-				.getAll();
+				.flatMapMany(BitstreamsEndpoint::streamAll);
 		// @formatter:on
 	}
 }
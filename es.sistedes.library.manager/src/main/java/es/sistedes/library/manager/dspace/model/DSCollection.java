@@ -17,7 +17,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 
 import es.sistedes.library.manager.proceedings.model.Track;
 
-public class DSCollection extends AbstractHateoas {
+public class DSCollection extends AbstractHateoas implements DSIdentifiable {
 
 	@JsonProperty
 	protected String id;
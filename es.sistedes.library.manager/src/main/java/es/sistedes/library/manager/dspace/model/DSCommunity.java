@@ -13,12 +13,15 @@ package es.sistedes.library.manager.dspace.model;
 
 import java.text.MessageFormat;
 import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 import es.sistedes.library.manager.dspace.endpoints.CommunitiesEndpoint;
+import es.sistedes.library.manager.dspace.endpoints.CommunityCollectionsEndpoint;
 import es.sistedes.library.manager.proceedings.model.Edition;
+import reactor.core.publisher.Flux;
 
 public class DSCommunity extends AbstractHateoas {
 
@@ -212,7 +215,11 @@ public class DSCommunity extends AbstractHateoas {
 	}
 	
 	public List<DSCollection> getCollections() {
-		return CommunitiesEndpoint.getCollectionsEndpoint(this).getAll();
+		return getCollectionsAsync().collectList().map(Collections::unmodifiableList).block();
+	}
+	
+	public Flux<DSCollection> getCollectionsAsync() {
+		return CommunitiesEndpoint.getCollectionsEndpointAsync(this).flatMapMany(CommunityCollectionsEndpoint::streamAll);
 	}
 
 	public static DSCommunity createSubCommunity(DSRoot dsRoot, DSCommunity topCommunity, Edition edition) {
@@ -0,0 +1,31 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.model;
+
+import java.net.URI;
+
+/**
+ * A DSpace object of which only its identity is needed, e.g., to set it as the
+ * owning collection of a new item, or as one of the sides of a relationship.
+ * Implemented both by the full objects (e.g., {@link DSItem},
+ * {@link DSCollection}) and by the lightweight {@link ItemRef}.
+ */
+public interface DSIdentifiable {
+
+	String getUuid();
+
+	String getName();
+
+	String getHandle();
+
+	URI getSelfUri();
+}
@@ -11,26 +11,54 @@
 
 package es.sistedes.library.manager.dspace.model;
 
+import java.io.IOException;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.springframework.http.MediaType;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import es.sistedes.library.manager.DSpaceConnectionManager;
 import es.sistedes.library.manager.dspace.endpoints.ItemBundlesEndpoint;
 import es.sistedes.library.manager.dspace.endpoints.ItemRelationshipsEndpoint;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-public class DSItem extends AbstractHateoas {
+public class DSItem extends AbstractHateoas implements DSIdentifiable {
+
+	// Mapper used to take snapshots and write patches, with the same
+	// configuration used to send the items to the server
+	private static final ObjectMapper SNAPSHOT_MAPPER = DSpaceConnectionManager.createDefaultObjectMapper();
 
 	protected static final String OTHER_BUNDLE = "OTHER";
 	protected static final String ORIGINAL_BUNDLE = "ORIGINAL";
 
+	/**
+	 * Projection that embeds the bundles of the item, and the bitstreams of each
+	 * bundle, in the item itself
+	 */
+	public static final String EMBED_BUNDLES = "bundles/bitstreams";
+
+	/**
+	 * Projection that embeds the relationships of the item in the item itself
+	 */
+	public static final String EMBED_RELATIONSHIPS = "relationships";
+
 
 	public enum Type {
 		AUTHOR("Autor"), PAPER("Artículo"), ABSTRACT("Resumen"), BULLETIN("Boletín"), SEMINAR("Seminario"), PRELIMINARS("Preliminares");
@@ -61,6 +89,20 @@ public class DSItem extends AbstractHateoas {
 	@JsonProperty
 	protected Metadata metadata = new Metadata();
 
+	/**
+	 * Serialized form of the metadata when the item was retrieved from (or last
+	 * saved to) the server. Used to compute the changes to be sent by
+	 * {@link #save()}.
+	 */
+	@JsonIgnore
+	protected JsonNode metadataSnapshot;
+
+	@JsonIgnore
+	protected Boolean discoverableSnapshot = true;
+
+	@JsonIgnore
+	protected Boolean withdrawnSnapshot = false;
+
 	@JsonProperty
 	protected Boolean inArchive = true;
 
@@ -73,6 +115,22 @@ public class DSItem extends AbstractHateoas {
 	@JsonProperty
 	protected Date lastModified;
 
+	/**
+	 * Resources embedded in the item when it has been retrieved with a projection
+	 * (see {@link #EMBED_BUNDLES} and {@link #EMBED_RELATIONSHIPS}). They reflect
+	 * the state of the item when it was retrieved.
+	 */
+	@JsonProperty(value = "_embedded", access = JsonProperty.Access.WRITE_ONLY)
+	protected DSItemEmbedded embedded;
+
+	protected static class DSItemEmbedded {
+		@JsonProperty
+		protected ItemBundlesEndpoint bundles;
+
+		@JsonProperty
+		protected ItemRelationshipsEndpoint relationships;
+	}
+
 	/**
 	 * @return the id
 	 */
@@ -192,64 +250,212 @@ public class DSItem extends AbstractHateoas {
 		return links;
 	}
 
+	@JsonProperty("metadata")
+	protected void setMetadata(Metadata metadata) {
+		this.metadata = metadata;
+		this.metadataSnapshot = SNAPSHOT_MAPPER.valueToTree(metadata);
+	}
+
+	@JsonProperty("discoverable")
+	protected void setDiscoverableFromServer(Boolean discoverable) {
+		this.discoverable = discoverable;
+		this.discoverableSnapshot = discoverable;
+	}
+
+	@JsonProperty("withdrawn")
+	protected void setWithdrawnFromServer(Boolean withdrawn) {
+		this.withdrawn = withdrawn;
+		this.withdrawnSnapshot = withdrawn;
+	}
+
 	public void save() {
-		ObjectMapper mapper = DSpaceConnectionManager.createDefaultObjectMapper();
-		DSAuthor dsAuthor = DSpaceConnectionManager.buildClient().put().uri(getSelfUri()).bodyValue(this).retrieve().bodyToMono(DSAuthor.class).block();
+		saveAsync().block();
+	}
+
+	/**
+	 * Saves the changes made to this item since it was retrieved. Only the
+	 * differences are sent, as a JSON Patch. Items that have not been retrieved
+	 * from the server are fully replaced instead.
+	 * 
+	 * @return
+	 */
+	public Mono<Void> saveAsync() {
+		if (metadataSnapshot == null) {
+			return connection.getClient().put().uri(getSelfUri()).bodyValue(this).retrieve().bodyToMono(JsonNode.class).doOnNext(this::update).then();
+		}
+		ArrayNode patch = createPatch();
+		if (patch.isEmpty()) {
+			return Mono.empty();
+		}
+		String body;
 		try {
-			mapper.readerForUpdating(this).readValue(mapper.writeValueAsString(dsAuthor));
+			body = SNAPSHOT_MAPPER.writeValueAsString(patch);
 		} catch (JsonProcessingException e) {
+			return Mono.error(e);
+		}
+		// @formatter:off
+		return connection.getClient().patch()
+				.uri(getSelfUri())
+				.contentType(MediaType.valueOf("application/json-patch+json"))
+				.bodyValue(body)
+				.retrieve()
+				.bodyToMono(JsonNode.class)
+				.doOnNext(this::update)
+				.then();
+		// @formatter:on
+	}
+
+	/**
+	 * Merges the item returned by the server into this object
+	 * 
+	 * @param item
+	 */
+	private void update(JsonNode item) {
+		try {
+			// Ignore unknown properties, as the decoder of the client does
+			connection.getObjectMapper().readerForUpdating(this).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).readValue(item);
+		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
 	}
 
+	/**
+	 * Creates the JSON Patch with the minimal set of operations that transform the
+	 * item as it was retrieved into its current state. Metadata values are
+	 * compared by value and language, since the rest of their properties are
+	 * managed by the server.
+	 * 
+	 * @return
+	 */
+	protected ArrayNode createPatch() {
+		ArrayNode patch = SNAPSHOT_MAPPER.createArrayNode();
+		JsonNode current = SNAPSHOT_MAPPER.valueToTree(metadata);
+		Set<String> fields = new TreeSet<>();
+		metadataSnapshot.fieldNames().forEachRemaining(fields::add);
+		current.fieldNames().forEachRemaining(fields::add);
+		for (String field : fields) {
+			String path = "/metadata/" + field;
+			JsonNode before = metadataSnapshot.path(field);
+			JsonNode after = current.path(field);
+			if (before.isEmpty() && after.isEmpty()) {
+				continue;
+			} else if (before.isEmpty()) {
+				addOperation(patch, "add", path, after);
+			} else if (after.isEmpty()) {
+				addOperation(patch, "remove", path, null);
+			} else {
+				for (int i = 0; i < Math.min(before.size(), after.size()); i++) {
+					JsonNode oldValue = before.get(i);
+					JsonNode newValue = after.get(i);
+					if (!Objects.equals(oldValue.path("language").asText(null), newValue.path("language").asText(null))) {
+						addOperation(patch, "replace", path + "/" + i, newValue);
+					} else if (!Objects.equals(oldValue.path("value").asText(null), newValue.path("value").asText(null))) {
+						addOperation(patch, "replace", path + "/" + i + "/value", newValue.path("value"));
+					}
+				}
+				// Remove from the end, so that the indexes of the pending removals do not change
+				for (int i = before.size() - 1; i >= after.size(); i--) {
+					addOperation(patch, "remove", path + "/" + i, null);
+				}
+				for (int i = before.size(); i < after.size(); i++) {
+					addOperation(patch, "add", path + "/-", after.get(i));
+				}
+			}
+		}
+		if (!Objects.equals(discoverable, discoverableSnapshot) && discoverable != null) {
+			addOperation(patch, "replace", "/discoverable", BooleanNode.valueOf(discoverable));
+		}
+		if (!Objects.equals(withdrawn, withdrawnSnapshot) && withdrawn != null) {
+			addOperation(patch, "replace", "/withdrawn", BooleanNode.valueOf(withdrawn));
+		}
+		return patch;
+	}
+
+	private static void addOperation(ArrayNode patch, String op, String path, JsonNode value) {
+		ObjectNode operation = patch.addObject();
+		operation.put("op", op);
+		operation.put("path", path);
+		if (value != null) {
+			operation.set("value", value);
+		}
+	}
+
 	public DSBundle createOtherBundle() {
-		return createBundle(new DSBundle(OTHER_BUNDLE));
+		return createOtherBundleAsync().block();
+	}
+	
+	public Mono<DSBundle> createOtherBundleAsync() {
+		return createBundleAsync(new DSBundle(OTHER_BUNDLE));
 	}
 	
 	public Optional<DSBundle> getOtherBundle() {
-		return getBundle(OTHER_BUNDLE);
+		return getOtherBundleAsync().blockOptional();
+	}
+	
+	public Mono<DSBundle> getOtherBundleAsync() {
+		return getBundleAsync(OTHER_BUNDLE);
 	}
 	
 	public DSBundle createOriginalBundle() {
-		return createBundle(new DSBundle(ORIGINAL_BUNDLE));
+		return createOriginalBundleAsync().block();
+	}
+	
+	public Mono<DSBundle> createOriginalBundleAsync() {
+		return createBundleAsync(new DSBundle(ORIGINAL_BUNDLE));
 	}
 
 	public Optional<DSBundle> getOriginalBundle() {
-		return getBundle(ORIGINAL_BUNDLE);
+		return getOriginalBundleAsync().blockOptional();
+	}
+	
+	public Mono<DSBundle> getOriginalBundleAsync() {
+		return getBundleAsync(ORIGINAL_BUNDLE);
 	}
 
 	public List<DSRelationship> getRelationships() {
-		// @formatter:off
-		return DSpaceConnectionManager
-				.buildClient(getLinkUri("relationships").get())
-				.get()
-				.retrieve()
-				.bodyToMono(ItemRelationshipsEndpoint.class)
-				.block().getAll();
-		// @formatter:on
+		return getRelationshipsAsync().collectList().map(Collections::unmodifiableList).block();
+	}
+	
+	public Flux<DSRelationship> getRelationshipsAsync() {
+		if (embedded != null && embedded.relationships != null) {
+			return embedded.relationships.streamAll();
+		}
+		return AbstractPageableResponse.streamElements(connection, getLinkUri("relationships").get(), DSRelationship.class, "relationships");
 	}
 
 	protected Optional<DSBundle> getBundle(String name) {
+		return getBundleAsync(name).blockOptional();
+	}
+	
+	protected Mono<DSBundle> getBundleAsync(String name) {
 		// @formatter:off
-		return DSpaceConnectionManager
-				.buildClient(getLinkUri("bundles").get())
-				.get()
-				.retrieve()
-				.bodyToMono(ItemBundlesEndpoint.class)
-				.block().getBundle(name);
+		Mono<ItemBundlesEndpoint> bundles = embedded != null && embedded.bundles != null
+				? Mono.just(embedded.bundles)
+				: connection.getClient(getLinkUri("bundles").get()).get().retrieve().bodyToMono(ItemBundlesEndpoint.class);
+		return bundles
+				.flatMapMany(ItemBundlesEndpoint::streamAll)
+				.filter(b -> b.getName().equals(name))
+				.next();
 		// @formatter:on
 	}
 
 	protected DSBundle createBundle(DSBundle bundle) {
+		return createBundleAsync(bundle).block();
+	}
+	
+	protected Mono<DSBundle> createBundleAsync(DSBundle bundle) {
+		// The embedded bundles, if any, are no longer up to date
+		if (embedded != null) {
+			embedded.bundles = null;
+		}
 		// @formatter:off
-		return DSpaceConnectionManager
-				.buildClient(getLinkUri("bundles").get())
+		return connection
+				.getClient(getLinkUri("bundles").get())
 				.post()
 				.contentType(MediaType.APPLICATION_JSON)
 				.bodyValue(bundle)
 				.retrieve()
-				.bodyToMono(DSBundle.class)
-				.block();
+				.bodyToMono(DSBundle.class);
 		// @formatter:on
 	}
 }
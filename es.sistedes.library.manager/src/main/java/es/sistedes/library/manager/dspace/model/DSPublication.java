@@ -222,7 +222,7 @@ public class DSPublication extends DSItem {
 		this.metadata.setContributorsAffiliations(affiliations);
 	}
 	
-	public static DSPublication createPublication(DSRoot dsRoot, DSCollection parent, Edition edition, AbstractProceedingsDocument document) {
+	public static DSPublication createPublication(DSRoot dsRoot, DSIdentifiable parent, Edition edition, AbstractProceedingsDocument document) {
 		DSPublication result = new DSPublication();
 		result.setTitle(StringUtils.normalizeSpace(document.getTitle()));
 		result.setAbstract(StringUtils.normalizeSpace(document.getAbstract()));
@@ -12,80 +12,433 @@
 package es.sistedes.library.manager.dspace.model;
 
 import java.net.URI;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
-import es.sistedes.library.manager.DSpaceConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
 import es.sistedes.library.manager.dspace.endpoints.AuthnEndpoint;
 import es.sistedes.library.manager.dspace.endpoints.BundlesEndpoint;
 import es.sistedes.library.manager.dspace.endpoints.CollectionsEndpoint;
 import es.sistedes.library.manager.dspace.endpoints.CommunitiesEndpoint;
+import es.sistedes.library.manager.dspace.endpoints.CommunitiesSearchEndpoint;
+import es.sistedes.library.manager.dspace.endpoints.CommunitiesSearchTopEndpoint;
 import es.sistedes.library.manager.dspace.endpoints.DiscoverEndpoint;
 import es.sistedes.library.manager.dspace.endpoints.ItemsEndpoint;
 import es.sistedes.library.manager.dspace.endpoints.RelationshipTypesEndpoint;
 import es.sistedes.library.manager.dspace.endpoints.RelationshipsEndpoint;
 import es.sistedes.library.manager.dspace.endpoints.ResourcePoliciesEndpoint;
 import es.sistedes.library.manager.dspace.endpoints.ScriptsEndpoint;
+import es.sistedes.library.manager.dspace.endpoints.SearchEndpoint;
+import es.sistedes.library.manager.dspace.endpoints.SearchObjectsEndpoint;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public class DSRoot extends AbstractHateoas {
 
-	public static DSRoot create(URI rootUri) {
-		return DSpaceConnectionManager.buildClient().get().uri(rootUri).retrieve().bodyToMono(DSRoot.class).block();
+	private static final Logger logger = LoggerFactory.getLogger(DSRoot.class);
+
+	public static final String SISTEDES_COMMUNITY_NAME = "Archivo documental de Sistedes";
+	public static final String AUTHORS_COLLECTION_NAME = "Autores";
+	public static final String IS_AUTHOR_OF_PAPER = "isAuthorOfPaper";
+	public static final String IS_AUTHOR_OF_ABSTRACT = "isAuthorOfAbstract";
+
+	/*
+	 * The endpoints discovered from the root are static during the whole session.
+	 * Thus, they are resolved only once per connection and cached afterwards.
+	 */
+	@JsonIgnore
+	private final Map<Class<?>, AbstractHateoas> endpointsCache = new ConcurrentHashMap<>();
+
+	@JsonIgnore
+	private final AtomicLong endpointsCacheHits = new AtomicLong();
+
+	@JsonIgnore
+	private final AtomicLong endpointsCacheMisses = new AtomicLong();
+
+	/*
+	 * Lookups that do not change during the session either. They are prefetched
+	 * in the background once logged in (see prefetchSessionLookups()), and cached
+	 * afterwards. Failed lookups are not cached, so that they are retried when
+	 * requested again.
+	 */
+	// @formatter:off
+	@JsonIgnore
+	private final Mono<List<RelationshipType>> relationshipTypes = cacheLookup(Mono.defer(() -> 
+			getRelationshipTypesEndpointAsync()
+				.flatMapMany(RelationshipTypesEndpoint::streamAll)
+				.collectList()));
+
+	@JsonIgnore
+	private final Mono<List<DSCommunity>> topCommunities = cacheLookup(Mono.defer(() -> 
+			getCommunitiesEndpointAsync()
+				.flatMap(CommunitiesEndpoint::getSearchEndpointAsync)
+				.flatMap(CommunitiesSearchEndpoint::getSearchTopEndpointAsync)
+				.flatMapMany(CommunitiesSearchTopEndpoint::streamAll)
+				.collectList()));
+
+	@JsonIgnore
+	private final Mono<DSCollection> authorsCollection = cacheLookup(Mono.defer(() -> 
+			getSistedesCommunityAsync()
+				.flatMapMany(DSCommunity::getCollectionsAsync)
+				.filter(collection -> AUTHORS_COLLECTION_NAME.equals(collection.getName()))
+				.next()
+				.switchIfEmpty(Mono.error(() -> new NoSuchElementException(MessageFormat.format("Collection ''{0}'' not found", AUTHORS_COLLECTION_NAME))))));
+	// @formatter:on
+
+	public static DSRoot create(DSpaceConnection connection, URI rootUri) {
+		return createAsync(connection, rootUri).block();
+	}
+	
+	public static Mono<DSRoot> createAsync(DSpaceConnection connection, URI rootUri) {
+		return connection.getClient().get().uri(rootUri).retrieve().bodyToMono(DSRoot.class);
 	}
 
 	public void callCsrfEndpoint() {
-		DSpaceConnectionManager.buildClient(getSelfUri()).get().uri(uriBuilder -> uriBuilder.pathSegment("security", "csrf").build()).retrieve().toBodilessEntity().block();
+		callCsrfEndpointAsync().block();
+	}
+	
+	public Mono<Void> callCsrfEndpointAsync() {
+		return connection.getClient(getSelfUri()).get().uri(uriBuilder -> uriBuilder.pathSegment("security", "csrf").build()).retrieve().toBodilessEntity().then();
 	}
 	
 	public AuthnEndpoint getAuthnEndpoint() {
-		return DSpaceConnectionManager.buildClient().get().uri(getLinkUri("authn").get()).retrieve().bodyToMono(AuthnEndpoint.class).block();
+		return getAuthnEndpointAsync().block();
+	}
+	
+	public Mono<AuthnEndpoint> getAuthnEndpointAsync() {
+		return getCachedEndpointAsync(AuthnEndpoint.class, () -> fetchEndpoint("authn", AuthnEndpoint.class));
 	}
 	
 	public ResourcePoliciesEndpoint getResourcePoliciesEndpoint() {
 		// The resourcepolicies endpoint cannot be GETted, thus, we create a dummy instance with the "self" link for convenience purposes
-		return new ResourcePoliciesEndpoint(getLinkUri("resourcepolicies").get());
+		return new ResourcePoliciesEndpoint(connection, getLinkUri("resourcepolicies").get());
 	}
 	
 	public DiscoverEndpoint getDiscoverEndpoint() {
-		return DSpaceConnectionManager.buildClient().get().uri(getLinkUri("discover").get()).retrieve().bodyToMono(DiscoverEndpoint.class).block();
+		return getDiscoverEndpointAsync().block();
+	}
+	
+	public Mono<DiscoverEndpoint> getDiscoverEndpointAsync() {
+		return getCachedEndpointAsync(DiscoverEndpoint.class, () -> fetchEndpoint("discover", DiscoverEndpoint.class));
+	}
+	
+	public SearchObjectsEndpoint<?> getSearchObjectsEndpoint() {
+		return getSearchObjectsEndpointAsync().block();
+	}
+	
+	public Mono<SearchObjectsEndpoint<?>> getSearchObjectsEndpointAsync() {
+		return getCachedEndpointAsync(SearchObjectsEndpoint.class, () -> fetchSearchObjectsEndpoint()).map(endpoint -> (SearchObjectsEndpoint<?>) endpoint);
 	}
 	
 	public ItemsEndpoint getItemsEndpoint() {
-		return DSpaceConnectionManager.buildClient().get().uri(getLinkUri("items").get()).retrieve().bodyToMono(ItemsEndpoint.class).block();
+		return getItemsEndpointAsync().block();
+	}
+	
+	public Mono<ItemsEndpoint> getItemsEndpointAsync() {
+		return getCachedEndpointAsync(ItemsEndpoint.class, () -> fetchEndpoint("items", ItemsEndpoint.class));
 	}
 
 	public CommunitiesEndpoint getCommunitiesEndpoint() {
-		return DSpaceConnectionManager.buildClient().get().uri(getLinkUri("communities").get()).retrieve().bodyToMono(CommunitiesEndpoint.class).block();
+		return getCommunitiesEndpointAsync().block();
+	}
+	
+	public Mono<CommunitiesEndpoint> getCommunitiesEndpointAsync() {
+		return getCachedEndpointAsync(CommunitiesEndpoint.class, () -> fetchEndpoint("communities", CommunitiesEndpoint.class));
 	}
 	
 	public CollectionsEndpoint getCollectionsEndpoint() {
-		return DSpaceConnectionManager.buildClient().get().uri(getLinkUri("collections").get()).retrieve().bodyToMono(CollectionsEndpoint.class).block();
+		return getCollectionsEndpointAsync().block();
+	}
+	
+	public Mono<CollectionsEndpoint> getCollectionsEndpointAsync() {
+		return getCachedEndpointAsync(CollectionsEndpoint.class, () -> fetchEndpoint("collections", CollectionsEndpoint.class));
 	}
 
 	public RelationshipsEndpoint getRelationshipsEndpoint() {
-		return DSpaceConnectionManager.buildClient().get().uri(getLinkUri("relationships").get()).retrieve().bodyToMono(RelationshipsEndpoint.class).block();
+		return getRelationshipsEndpointAsync().block();
+	}
+	
+	public Mono<RelationshipsEndpoint> getRelationshipsEndpointAsync() {
+		return getCachedEndpointAsync(RelationshipsEndpoint.class, () -> fetchEndpoint("relationships", RelationshipsEndpoint.class));
 	}
 	
 	public RelationshipTypesEndpoint getRelationshipTypesEndpoint() {
-		return DSpaceConnectionManager.buildClient().get().uri(getLinkUri("relationshiptypes").get()).retrieve().bodyToMono(RelationshipTypesEndpoint.class).block();
+		return getRelationshipTypesEndpointAsync().block();
+	}
+	
+	public Mono<RelationshipTypesEndpoint> getRelationshipTypesEndpointAsync() {
+		return getCachedEndpointAsync(RelationshipTypesEndpoint.class, () -> fetchEndpoint("relationshiptypes", RelationshipTypesEndpoint.class));
 	}
 	
 	public BundlesEndpoint getBundlesEndpoint() {
 		// The bundles endpoint cannot be GETted, thus, we create a dummy instance with the "self" link for convenience purposes
-		return new BundlesEndpoint(getLinkUri("bundles").get());
+		return new BundlesEndpoint(connection, getLinkUri("bundles").get());
 	}
 	
 	public ScriptsEndpoint getScriptsEndpoint() {
-		return DSpaceConnectionManager.buildClient(getSelfUri()).get().uri(
-				uriBuilder -> uriBuilder.pathSegment("system", "scripts").build()).retrieve().bodyToMono(ScriptsEndpoint.class).block();
+		return getScriptsEndpointAsync().block();
+	}
+	
+	public Mono<ScriptsEndpoint> getScriptsEndpointAsync() {
+		return getCachedEndpointAsync(ScriptsEndpoint.class, () -> fetchScriptsEndpoint());
 	}	
 	
+	/**
+	 * Resolves concurrently all the endpoints that have not been cached yet.
+	 * Failures are not fatal: the endpoint will be resolved again when requested.
+	 */
+	public void warmUpEndpointsCache() {
+		// @formatter:off
+		Flux.just(
+				cacheEndpoint(AuthnEndpoint.class, () -> fetchEndpoint("authn", AuthnEndpoint.class)),
+				cacheEndpoint(DiscoverEndpoint.class, () -> fetchEndpoint("discover", DiscoverEndpoint.class)),
+				cacheEndpoint(SearchObjectsEndpoint.class, () -> fetchSearchObjectsEndpoint()),
+				cacheEndpoint(ItemsEndpoint.class, () -> fetchEndpoint("items", ItemsEndpoint.class)),
+				cacheEndpoint(CommunitiesEndpoint.class, () -> fetchEndpoint("communities", CommunitiesEndpoint.class)),
+				cacheEndpoint(CollectionsEndpoint.class, () -> fetchEndpoint("collections", CollectionsEndpoint.class)),
+				cacheEndpoint(RelationshipsEndpoint.class, () -> fetchEndpoint("relationships", RelationshipsEndpoint.class)),
+				cacheEndpoint(RelationshipTypesEndpoint.class, () -> fetchEndpoint("relationshiptypes", RelationshipTypesEndpoint.class)),
+				cacheEndpoint(ScriptsEndpoint.class, () -> fetchScriptsEndpoint())
+			).flatMap(endpoint -> endpoint.onErrorResume(e -> {
+				logger.warn(MessageFormat.format("Unable to pre-fetch endpoint ({0})", e.getLocalizedMessage()));
+				return Mono.empty();
+			})).then().block();
+		// @formatter:on
+	}
+	
+	/**
+	 * @return the number of endpoint lookups served from the cache
+	 */
+	public long getEndpointsCacheHits() {
+		return endpointsCacheHits.get();
+	}
+	
+	/**
+	 * @return the number of endpoint lookups that required a request to the server
+	 */
+	public long getEndpointsCacheMisses() {
+		return endpointsCacheMisses.get();
+	}
+	
+	/**
+	 * Starts fetching in the background the lookups that are static during the
+	 * session (relationship types, top communities and the authors collection),
+	 * so that they are already available when first requested. Failures are not
+	 * fatal: the lookup will be fetched again when requested.
+	 */
+	public void prefetchSessionLookups() {
+		// @formatter:off
+		Flux.merge(relationshipTypes, authorsCollection)
+			.subscribe(
+				lookup -> {}, 
+				e -> logger.warn(MessageFormat.format("Unable to pre-fetch session lookups ({0})", e.getLocalizedMessage())));
+		// @formatter:on
+	}
+
+	public List<RelationshipType> getRelationshipTypes() {
+		return getRelationshipTypesAsync().block();
+	}
+
+	public Mono<List<RelationshipType>> getRelationshipTypesAsync() {
+		return relationshipTypes;
+	}
+
+	public RelationshipType getIsAuthorOfPaperRelationship() {
+		return getRelationshipTypeAsync(IS_AUTHOR_OF_PAPER).block();
+	}
+
+	public RelationshipType getIsAuthorOfAbstractRelationship() {
+		return getRelationshipTypeAsync(IS_AUTHOR_OF_ABSTRACT).block();
+	}
+
+	public Mono<RelationshipType> getRelationshipTypeAsync(String leftwardType) {
+		// @formatter:off
+		return relationshipTypes
+				.flatMapIterable(types -> types)
+				.filter(type -> leftwardType.equals(type.getLeftwardType()))
+				.next()
+				.switchIfEmpty(Mono.error(() -> new NoSuchElementException(MessageFormat.format("Relationship type ''{0}'' not found", leftwardType))));
+		// @formatter:on
+	}
+
+	public List<DSCommunity> getTopCommunities() {
+		return getTopCommunitiesAsync().block();
+	}
+
+	public Mono<List<DSCommunity>> getTopCommunitiesAsync() {
+		return topCommunities;
+	}
+
+	public DSCommunity getSistedesCommunity() {
+		return getSistedesCommunityAsync().block();
+	}
+
+	public Mono<DSCommunity> getSistedesCommunityAsync() {
+		return findTopCommunityAsync(community -> SISTEDES_COMMUNITY_NAME.equals(community.getName()), SISTEDES_COMMUNITY_NAME);
+	}
+
+	/**
+	 * Returns the top community of the conference with the given acronym, i.e.,
+	 * the one whose name ends with <code>(ACRONYM)</code>
+	 * 
+	 * @param acronym
+	 * @return
+	 */
+	public DSCommunity getConferenceCommunity(String acronym) {
+		return getConferenceCommunityAsync(acronym).block();
+	}
+
+	public Mono<DSCommunity> getConferenceCommunityAsync(String acronym) {
+		return findTopCommunityAsync(community -> community.getName().endsWith("(" + acronym + ")"), acronym);
+	}
+
+	public DSCollection getAuthorsCollection() {
+		return getAuthorsCollectionAsync().block();
+	}
+
+	public Mono<DSCollection> getAuthorsCollectionAsync() {
+		return authorsCollection;
+	}
+
+	private Mono<DSCommunity> findTopCommunityAsync(Predicate<DSCommunity> predicate, String description) {
+		// @formatter:off
+		return topCommunities
+				.flatMapIterable(communities -> communities)
+				.filter(predicate)
+				.next()
+				.switchIfEmpty(Mono.error(() -> new NoSuchElementException(MessageFormat.format("Community ''{0}'' not found", description))));
+		// @formatter:on
+	}
+
+	private static <T> Mono<T> cacheLookup(Mono<T> lookup) {
+		return lookup.cache(value -> Duration.ofMillis(Long.MAX_VALUE), error -> Duration.ZERO, () -> Duration.ZERO);
+	}
+
+	private <T extends AbstractHateoas> Mono<T> getCachedEndpointAsync(Class<T> clazz, Supplier<Mono<T>> fetcher) {
+		if (endpointsCache.containsKey(clazz)) {
+			endpointsCacheHits.incrementAndGet();
+		} else {
+			endpointsCacheMisses.incrementAndGet();
+		}
+		return cacheEndpoint(clazz, fetcher);
+	}
+
+	private <T extends AbstractHateoas> Mono<T> cacheEndpoint(Class<T> clazz, Supplier<Mono<T>> fetcher) {
+		AbstractHateoas cached = endpointsCache.get(clazz);
+		if (cached != null) {
+			return Mono.just(clazz.cast(cached));
+		}
+		return Mono.defer(fetcher).map(endpoint -> clazz.cast(endpointsCache.computeIfAbsent(clazz, key -> endpoint)));
+	}
+	
+	private <T extends AbstractHateoas> Mono<T> fetchEndpoint(String linkName, Class<T> clazz) {
+		return connection.getClient().get().uri(getLinkUri(linkName).get()).retrieve().bodyToMono(clazz);
+	}
+	
+	private Mono<ScriptsEndpoint> fetchScriptsEndpoint() {
+		return connection.getClient(getSelfUri()).get().uri(
+				uriBuilder -> uriBuilder.pathSegment("system", "scripts").build()).retrieve().bodyToMono(ScriptsEndpoint.class);
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private Mono<SearchObjectsEndpoint> fetchSearchObjectsEndpoint() {
+		// @formatter:off
+		return cacheEndpoint(DiscoverEndpoint.class, () -> fetchEndpoint("discover", DiscoverEndpoint.class))
+				.flatMap(discover -> connection.getClient().get().uri(discover.getLinkUri("search").get()).retrieve().bodyToMono(SearchEndpoint.class))
+				.flatMap(search -> connection.getClient().get().uri(search.getLinkUri("objects").get()).retrieve().bodyToMono(SearchObjectsEndpoint.class));
+		// @formatter:on
+	}
+	
 	public Optional<DSAuthor> searchAuthor(String query) {
-		return getDiscoverEndpoint().getSearchEndpoint().getSearchObjectsEndpoint().newAuthorQuery(query).getQueryResults().getFirst();
+		return searchAuthorAsync(query).blockOptional();
+	}
+	
+	public Mono<DSAuthor> searchAuthorAsync(String query) {
+		// Only the first page is needed, do not use streamAll() to avoid prefetching the next one
+		// @formatter:off
+		return getSearchObjectsEndpointAsync()
+				.flatMap(endpoint -> endpoint.newAuthorQueryAsync(query, null))
+				.flatMap(result -> Mono.justOrEmpty(result.getQueryResults().getFirst()));
+		// @formatter:on
 	}
 
 	public Collection<DSAuthor> searchAuthors(String query) {
-		return getDiscoverEndpoint().getSearchEndpoint().getSearchObjectsEndpoint().newAuthorQuery(query).getQueryResults().getAll();
+		return searchAuthorsAsync(query).collectList().map(Collections::unmodifiableList).block();
+	}
+	
+	public Flux<DSAuthor> searchAuthorsAsync(String query) {
+		return getSearchObjectsEndpointAsync().flatMapMany(endpoint -> endpoint.streamAuthorQueryAsync(query, null));
+	}
+
+	/**
+	 * Returns the authors with any of the given ORCIDs, using a single query
+	 *
+	 * @param orcids
+	 * @return a map from each ORCID to its author
+	 */
+	public Map<String, DSAuthor> findAuthorsByOrcid(Collection<String> orcids) {
+		return findAuthorsByOrcidAsync(orcids).block();
+	}
+
+	public Mono<Map<String, DSAuthor>> findAuthorsByOrcidAsync(Collection<String> orcids) {
+		return getSearchObjectsEndpointAsync().flatMap(endpoint -> endpoint.findAuthorsByOrcidAsync(orcids));
+	}
+
+	/**
+	 * Returns the authors with any of the given e-mails, using a single query
+	 *
+	 * @param emails
+	 * @return a map from each e-mail to its author
+	 */
+	public Map<String, DSAuthor> findAuthorsByEmail(Collection<String> emails) {
+		return findAuthorsByEmailAsync(emails).block();
+	}
+
+	public Mono<Map<String, DSAuthor>> findAuthorsByEmailAsync(Collection<String> emails) {
+		return getSearchObjectsEndpointAsync().flatMap(endpoint -> endpoint.findAuthorsByEmailAsync(emails));
+	}
+
+	/**
+	 * Returns a lazy {@link Flux} with all the authors of the authors collection,
+	 * which are read in pages of <code>pageSize</code> authors while they are
+	 * consumed
+	 * 
+	 * @param pageSize
+	 * @return
+	 */
+	public Flux<DSAuthor> getAllAuthorsAsync(Integer pageSize) {
+		return getAuthorsModifiedSinceAsync(null, pageSize);
+	}
+
+	/**
+	 * Returns a lazy {@link Flux} with the authors of the authors collection that
+	 * have been modified since the given instant (inclusive)
+	 * 
+	 * @param modifiedSince the instant, or <code>null</code> for all the authors
+	 * @param pageSize
+	 * @return
+	 */
+	public Flux<DSAuthor> getAuthorsModifiedSinceAsync(Instant modifiedSince, Integer pageSize) {
+		// @formatter:off
+		return getAuthorsCollectionAsync().flatMapMany(collection -> 
+				getSearchObjectsEndpointAsync().flatMapMany(endpoint -> endpoint.streamAuthorsAsync(collection.getUuid(), modifiedSince, pageSize)));
+		// @formatter:on
 	}
 	
 }
@@ -0,0 +1,56 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Projection of a DSpace item (or collection) that only keeps its identity.
+ * When it is decoded, the rest of the object (e.g., its metadata) is skipped
+ * without being bound, so it is much cheaper than reading the full object when
+ * only its UUID, handle or self link are needed.
+ */
+public class ItemRef extends AbstractHateoas implements DSIdentifiable {
+
+	@JsonProperty
+	protected String uuid;
+
+	@JsonProperty
+	protected String name;
+
+	@JsonProperty
+	protected String handle;
+
+	/**
+	 * @return the uuid
+	 */
+	@Override
+	public String getUuid() {
+		return uuid;
+	}
+
+	/**
+	 * @return the name
+	 */
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the handle
+	 */
+	@Override
+	public String getHandle() {
+		return handle;
+	}
+}
@@ -14,6 +14,9 @@ package es.sistedes.library.manager.proceedings.model;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+
 import es.sistedes.library.manager.proceedings.model.Submission.Type;
 
 public abstract class AbstractProceedingsDocument extends AbstractProceedingsElement {
@@ -32,6 +35,8 @@ public abstract class AbstractProceedingsDocument extends AbstractProceedingsEle
 
 	protected Type type;
 
+	protected boolean restricted;
+
 	/**
 	 * @return the type
 	 */
@@ -116,4 +121,21 @@ public abstract class AbstractProceedingsDocument extends AbstractProceedingsEle
 		this.rightsUri = rightsUri;
 	}
 
+	/**
+	 * @return whether the READ policies of the published document have already
+	 *         been deleted (i.e., it is only visible to administrators)
+	 */
+	@JsonInclude(Include.NON_DEFAULT)
+	public boolean isRestricted() {
+		return restricted;
+	}
+
+	/**
+	 * @param restricted whether the READ policies of the published document have
+	 *                   already been deleted
+	 */
+	public void setRestricted(boolean restricted) {
+		this.restricted = restricted;
+	}
+
 }
@@ -13,6 +13,10 @@ package es.sistedes.library.manager.proceedings.model;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.text.MessageFormat;
 
 import org.slf4j.Logger;
@@ -120,7 +124,11 @@ public abstract class AbstractProceedingsElement {
 		this.file = file;
 	}
 
-	public void save() {
+	/**
+	 * Writes this element to its file. Synchronized, since the same element (e.g.,
+	 * a submission shared by several authors) may be saved concurrently.
+	 */
+	public synchronized void save() {
 		if (file == null) {
 			throw new RuntimeException(MessageFormat.format("Proceedings element ''{0}'' does not have a file name", this.toString()));
 		}
@@ -130,9 +138,34 @@ public abstract class AbstractProceedingsElement {
 		mapper.configure(SerializationFeature.INDENT_OUTPUT, true);
 		mapper.configure(SerializationFeature.CLOSE_CLOSEABLE, true);
 		try {
-			mapper.writeValue(file, this);
+			writeAtomically(mapper, file, this);
 		} catch (IOException e) {
 			logger.error(MessageFormat.format("Unable to write ''{0}''! ({1})", file, e.getLocalizedMessage()));
 		}
 	}
+
+	/**
+	 * Writes <code>value</code> to a temporary file next to <code>file</code>, and
+	 * then replaces <code>file</code> with it, so that an interrupted or failed
+	 * write never leaves a truncated JSON file behind.
+	 * 
+	 * @param mapper
+	 * @param file
+	 * @param value
+	 * @throws IOException
+	 */
+	protected static void writeAtomically(JsonMapper mapper, File file, Object value) throws IOException {
+		Path target = file.toPath().toAbsolutePath();
+		Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+		try {
+			mapper.writeValue(temp.toFile(), value);
+			try {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
 }
@@ -153,14 +153,15 @@ public class TracksIndex extends AbstractProceedingsElement implements Map<Integ
 		return TracksIndex.create(tracksFile, mapper.readValue(tracksFile, new TypeReference<List<Track>>(){}));
 	}
 	
-	public void save() {
+	@Override
+	public synchronized void save() {
 		JsonMapper mapper = JsonMapper.builder().build();
 		mapper.setSerializationInclusion(Include.NON_NULL);
 		mapper.setSerializationInclusion(Include.NON_EMPTY);
 		mapper.configure(SerializationFeature.INDENT_OUTPUT, true);
 		mapper.configure(SerializationFeature.CLOSE_CLOSEABLE, true);
 		try {
-			mapper.writeValue(file, this.tracks);
+			writeAtomically(mapper, file, this.tracks);
 		} catch (IOException e) {
 			logger.error(MessageFormat.format("Unable to write ''{0}''! ({1})", file, e.getLocalizedMessage()));
 		}
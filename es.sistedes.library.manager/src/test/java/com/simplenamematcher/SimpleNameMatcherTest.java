@@ -0,0 +1,85 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package com.simplenamematcher;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that {@link SimpleNameMatcher#getMaxSimilarity(int[], int[])} is an
+ * upper bound of {@link SimpleNameMatcher#compareNames(String, String)}, since
+ * candidates are discarded based only on it
+ */
+class SimpleNameMatcherTest {
+
+	private static final int RANDOM_PAIRS = 20_000;
+	private static final String ALPHABET = "abcdeéfgh -";
+
+	// @formatter:off
+	private static final String[][] PAIRS = {
+			{ "Jose Maria Garcia Lopez", "JoseMaria GarciaLopez" },
+			{ "García-López, José María", "Garcia Lopez, Jose Maria" },
+			{ "Gómez, Abel", "Gómez Llana, Abel" },
+			{ "Gómez, Abel", "Gómez, Abel" },
+			{ "Gómez, A.", "Gómez Llana, Abel" },
+			{ "de la Vara, José Luis", "Vara, Jose L." },
+			{ "Ruiz, Ana", "Fernández-Ruiz de Velasco, María Anabel" },
+			{ "O'Connor, Sean", "OConnor, Sean" },
+			{ "Pérez, Juan", "Jiménez, Juana" },
+	};
+	// @formatter:on
+
+	@Test
+	void maxSimilarityBoundsTheSimilarityOfHandPickedPairs() throws Exception {
+		for (String[] pair : PAIRS) {
+			assertBound(pair[0], pair[1]);
+			assertBound(pair[1], pair[0]);
+		}
+	}
+
+	@Test
+	void maxSimilarityBoundsTheSimilarityOfRandomPairs() throws Exception {
+		Random random = new Random(1);
+		for (int i = 0; i < RANDOM_PAIRS; i++) {
+			String name1 = randomName(random, "a");
+			// Half of the pairs only differ in their separators, which are the
+			// cheapest changes, and thus the closest to the bound
+			String name2 = random.nextBoolean() ? name1.replaceFirst(" ", "").replaceFirst("-", " ").trim() : randomName(random, "b");
+			assertBound(name1, name2);
+		}
+	}
+
+	@Test
+	void maxSimilarityOfEqualLengthsIsNotBounded() {
+		assertEquals(100.0d, SimpleNameMatcher.getMaxSimilarity(SimpleNameMatcher.getLengths("Gómez, Abel"), SimpleNameMatcher.getLengths("Pérez, Juan")));
+	}
+
+	private static void assertBound(String name1, String name2) throws NonPermittedSymbolException {
+		double similarity = SimpleNameMatcher.compareNames(name1, name2);
+		double bound = SimpleNameMatcher.getMaxSimilarity(SimpleNameMatcher.getLengths(name1), SimpleNameMatcher.getLengths(name2));
+		// compareNames() rounds its result to two decimals
+		assertTrue(bound + 0.01 >= similarity, () -> "'" + name1 + "' and '" + name2 + "' have a similarity of " + similarity + ", above its bound " + bound);
+	}
+
+	private static String randomName(Random random, String first) {
+		StringBuilder name = new StringBuilder(first);
+		int length = 1 + random.nextInt(14);
+		for (int i = 0; i < length; i++) {
+			name.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+		}
+		return name.toString().trim().replaceAll("\\s{2,}", " ");
+	}
+}
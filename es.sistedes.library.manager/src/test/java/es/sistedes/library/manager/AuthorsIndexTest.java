@@ -0,0 +1,102 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
+import es.sistedes.library.manager.dspace.model.DSAuthor;
+import es.sistedes.library.manager.dspace.model.DSRoot;
+import es.sistedes.library.manager.dspace.standin.DSpaceStandInServer;
+
+/**
+ * Checks which candidates {@link AuthorsIndex#findByName(String, double)}
+ * compares with the searched name, using authors created in the stand-in
+ * server
+ */
+class AuthorsIndexTest {
+
+	// More than the candidates that are scored, all sharing the same tokens
+	private static final int TIED_CANDIDATES = 60;
+
+	private DSpaceStandInServer server;
+	private DSpaceConnection connection;
+	private DSRoot dsRoot;
+
+	@BeforeEach
+	void connect() {
+		server = new DSpaceStandInServer();
+		URI uri = server.start("localhost", 0);
+		connection = DSpaceConnectionManager.createConnection(uri, "admin@sistedes.es", "password");
+		dsRoot = connection.getDsRoot();
+	}
+
+	@AfterEach
+	void disconnect() {
+		connection.close();
+		server.stop();
+	}
+
+	@Test
+	void candidatesTiedWithTheLastScoredOneAreAlsoScored() {
+		// All the candidates only share "garcia" with the searched name, so they are
+		// tied, and only their names tell which one is the best match
+		for (int i = 0; i < TIED_CANDIDATES - 1; i++) {
+			createAuthor("García", "Zoe" + (char) ('a' + i % 26) + (char) ('a' + i / 26));
+		}
+		DSAuthor best = createAuthor("García", "Anabel");
+		AuthorsIndex index = AuthorsIndex.create(dsRoot, null, false);
+
+		Optional<DSAuthor> found = index.findByName("García, Ana", 0.0d);
+
+		assertTrue(found.isPresent());
+		assertEquals(best.getUuid(), found.get().getUuid());
+	}
+
+	@Test
+	void candidatesThatCannotReachTheMinimumSimilarityAreDiscarded() {
+		DSAuthor longer = createAuthor("Gómez Sánchez-Ramírez", "Abelardo Juan");
+		AuthorsIndex index = AuthorsIndex.create(dsRoot, null, false);
+
+		assertTrue(index.findByName("Gómez, Abel", 90.0d).isEmpty());
+		assertEquals(longer.getUuid(), index.findByName("Gómez, Abel", 0.0d).map(DSAuthor::getUuid).orElse(null));
+	}
+
+	@Test
+	void lengthFilterKeepsNamesThatOnlyDifferInTheirSeparators() {
+		// Separators are cheap to add or remove, so the four ones missing from the
+		// name of this author must not rule it out
+		DSAuthor author = createAuthor("GarcíaLópezdelaVega", "José María");
+		AuthorsIndex index = AuthorsIndex.create(dsRoot, null, false);
+
+		Optional<DSAuthor> found = index.findByName("García López de la Vega, José María", 90.0d);
+
+		assertTrue(found.isPresent());
+		assertEquals(author.getUuid(), found.get().getUuid());
+	}
+
+	private DSAuthor createAuthor(String familyName, String givenName) {
+		DSAuthor author = new DSAuthor();
+		author.setFamilyName(familyName);
+		author.setGivenName(givenName);
+		author.setName(author.getFullName());
+		return dsRoot.getItemsEndpoint().createAuthor(author, dsRoot.getAuthorsCollection());
+	}
+}
@@ -0,0 +1,84 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.net.URI;
+import java.time.Duration;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
+import es.sistedes.library.manager.dspace.standin.DSpaceStandInServer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sends many concurrent requests through a {@link DSpaceConnection} while the
+ * stand-in server rotates the XSRF token in every response and the JWT is
+ * refreshed every second, and checks that no request is sent with stale or
+ * inconsistent session tokens.
+ */
+class SessionTokensStressTest {
+
+	// The JWT is refreshed two minutes before it expires, i.e., every second
+	private static final Duration TOKEN_LIFETIME = Duration.ofMinutes(2).plusSeconds(1);
+	private static final Duration LOAD_DURATION = Duration.ofSeconds(6);
+	private static final int CONCURRENCY = 32;
+
+	@Test
+	void concurrentRequestsUseTheLatestSessionTokens() {
+		DSpaceStandInServer server = new DSpaceStandInServer();
+		server.setJitter(Duration.ofMillis(20));
+		server.setTokenLifetime(TOKEN_LIFETIME);
+		server.setStrictSessions(true);
+		server.setXsrfRotationRate(1);
+		URI uri = server.start("localhost", 0);
+		DSpaceConnection connection = DSpaceConnectionManager.createConnection(uri, "admin@sistedes.es", "password");
+		try {
+			WebClient client = connection.getClient();
+			long deadline = System.currentTimeMillis() + LOAD_DURATION.toMillis();
+			// @formatter:off
+			long sent = Flux.range(0, Integer.MAX_VALUE)
+					.takeWhile(i -> System.currentTimeMillis() < deadline)
+					.flatMap(i -> send(client, uri, i), CONCURRENCY)
+					.count().block();
+			// @formatter:on
+			// Once the load is over, the next request must carry the last issued JWT
+			send(client, uri, -1).block();
+			assertEquals(0, server.getRejectedRequests(), "Requests rejected because of their session tokens (out of " + sent + ")");
+			assertEquals(server.getLastIssuedToken(), server.getLastReceivedToken());
+		} finally {
+			connection.close();
+			server.stop();
+		}
+	}
+
+	/**
+	 * Sends a search (i.e., a GET request that is never coalesced with other
+	 * requests) or, every fourth request, the creation of an item
+	 */
+	private static Mono<String> send(WebClient client, URI uri, int i) {
+		if (i % 4 != 0) {
+			return client.get().uri(uri + "/discover/search/objects?query={query}", "request" + i).retrieve().bodyToMono(String.class);
+		}
+		// @formatter:off
+		return client.post().uri(uri + "/core/items?owningCollection={collection}", "none")
+				.contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"metadata\":{}}")
+				.retrieve().bodyToMono(String.class);
+		// @formatter:on
+	}
+}
@@ -0,0 +1,144 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.JsonInclude.Include;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
+import es.sistedes.library.manager.dspace.client.AdaptiveConcurrencyLimitFilterFunction;
+import es.sistedes.library.manager.dspace.standin.DSpaceStandInServer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Compares the cost of sending requests to the stand-in server with the
+ * {@link WebClient} shared by a {@link DSpaceConnection}, and with a new client
+ * (and a new {@link ObjectMapper}) built for every request, as the endpoints
+ * used to do. For each case, it reports the throughput and the bytes allocated
+ * per request by all the threads of the JVM, both sequentially and with
+ * concurrent requests.
+ *
+ * Each request is a search with a different query, so that it is never served
+ * by the coalescing filter of the shared client, and it goes through the same
+ * filters as any other search: metrics, retries, the HTTP cache (which stores
+ * every response, since the stand-in server sends an ETag), the adaptive
+ * concurrency limiter and the CSRF tokens. The limiter allows
+ * {@link AdaptiveConcurrencyLimitFilterFunction#getInitialLimit()} in-flight
+ * searches at first, and up to
+ * {@link AdaptiveConcurrencyLimitFilterFunction#getMaxLimit()} as long as the
+ * latency does not grow, so concurrent requests may be queued by the shared
+ * client; the limit reached after each run is reported. The stand-in server
+ * answers without any added latency, so the results show the overhead of the
+ * client. Run it with:
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=es.sistedes.library.manager.SharedClientBenchmark [-Dexec.args="&lt;requests&gt;"]
+ * </pre>
+ */
+public class SharedClientBenchmark {
+
+	private static final int DEFAULT_REQUESTS = 5_000;
+	private static final int[] CONCURRENCY = { 1, 16 };
+	private static final String SEARCH_ENDPOINT_CLASS = "discover/search";
+
+	public static void main(String[] args) {
+		int requests = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_REQUESTS;
+		DSpaceStandInServer server = new DSpaceStandInServer();
+		URI uri = server.start("localhost", 0);
+		DSpaceConnection connection = DSpaceConnectionManager.createConnection(uri, "admin@sistedes.es", "password");
+		try {
+			WebClient shared = connection.getClient();
+			AdaptiveConcurrencyLimitFilterFunction limiter = connection.getConcurrencyLimiter();
+			IntFunction<Mono<JsonNode>> sharedRequest = i -> search(shared, uri, i);
+			IntFunction<Mono<JsonNode>> perCallRequest = i -> search(buildClient(), uri, i);
+			System.out.println(String.format(Locale.ROOT, "Concurrency limit of the shared client: %d initially, up to %d per endpoint class",
+					limiter.getInitialLimit(), limiter.getMaxLimit()));
+			System.out.println(String.format(Locale.ROOT, "%-16s %11s %10s %12s %14s %6s", "Client", "Concurrency", "Requests", "Requests/s", "Allocated/req", "Limit"));
+			for (int concurrency : CONCURRENCY) {
+				run("shared", sharedRequest, requests, concurrency, () -> String.valueOf(limiter.getCurrentLimits().get(SEARCH_ENDPOINT_CLASS)));
+				run("per call", perCallRequest, requests, concurrency, () -> "-");
+			}
+		} finally {
+			connection.close();
+			server.stop();
+		}
+	}
+
+	/**
+	 * Sends the given number of requests after a warm-up round, and prints the
+	 * results, including the concurrency limit applied by the client at the end
+	 */
+	private static void run(String name, IntFunction<Mono<JsonNode>> request, int requests, int concurrency, Supplier<String> limit) {
+		send(request, requests / 5, concurrency);
+		long allocated = getAllocatedBytes();
+		long start = System.nanoTime();
+		send(request, requests, concurrency);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		allocated = getAllocatedBytes() - allocated;
+		System.out.println(String.format(Locale.ROOT, "%-16s %11d %10d %12.0f %11.1f KB %6s", name, concurrency, requests, requests / seconds,
+				allocated / 1024.0 / requests, limit.get()));
+	}
+
+	private static void send(IntFunction<Mono<JsonNode>> request, int requests, int concurrency) {
+		Flux.range(0, requests).flatMap(i -> request.apply(i), concurrency).blockLast();
+	}
+
+	private static Mono<JsonNode> search(WebClient client, URI uri, int i) {
+		// @formatter:off
+		return client.get()
+				.uri(uri + "/discover/search/objects?query={query}", "benchmark" + i + "-" + System.nanoTime())
+				.retrieve()
+				.bodyToMono(JsonNode.class);
+		// @formatter:on
+	}
+
+	/**
+	 * Builds a client as the endpoints used to do before sharing the client of
+	 * the connection
+	 */
+	private static WebClient buildClient() {
+		ObjectMapper mapper = new ObjectMapper();
+		mapper.setSerializationInclusion(Include.NON_NULL);
+		mapper.setSerializationInclusion(Include.NON_EMPTY);
+		mapper.setVisibility(PropertyAccessor.ALL, Visibility.NONE);
+		mapper.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+		// @formatter:off
+		return WebClient.builder()
+				.codecs(codecs -> codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(mapper, MediaType.APPLICATION_JSON)))
+				.codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(1024 * 1024))
+				.build();
+		// @formatter:on
+	}
+
+	/**
+	 * Returns the bytes allocated so far by the live threads of the JVM
+	 */
+	private static long getAllocatedBytes() {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		return Arrays.stream(threads.getThreadAllocatedBytes(threads.getAllThreadIds())).filter(bytes -> bytes > 0).sum();
+	}
+}
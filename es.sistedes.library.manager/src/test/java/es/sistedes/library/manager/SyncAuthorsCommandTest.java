@@ -0,0 +1,107 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URI;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
+import es.sistedes.library.manager.dspace.model.DSAuthor;
+import es.sistedes.library.manager.dspace.model.DSRoot;
+import es.sistedes.library.manager.dspace.standin.DSpaceStandInServer;
+import es.sistedes.library.manager.proceedings.model.Author;
+import es.sistedes.library.manager.proceedings.model.Signature;
+
+/**
+ * Checks that signatures are matched by ORCID with the authors of the library
+ * whatever the form in which the ORCID is stored
+ */
+class SyncAuthorsCommandTest {
+
+	private static final String ORCID = "0000-0002-1694-233X";
+
+	private DSpaceStandInServer server;
+	private DSpaceConnection connection;
+	private DSRoot dsRoot;
+
+	@BeforeEach
+	void connect() {
+		server = new DSpaceStandInServer();
+		URI uri = server.start("localhost", 0);
+		connection = DSpaceConnectionManager.createConnection(uri, "admin@sistedes.es", "password");
+		dsRoot = connection.getDsRoot();
+	}
+
+	@AfterEach
+	void disconnect() {
+		connection.close();
+		server.stop();
+	}
+
+	@Test
+	void signatureWithBareOrcidMatchesAuthorWithOrcidUri() {
+		DSAuthor existing = createAuthor("Gómez", "Abel", "https://orcid.org/" + ORCID);
+		// A different author with a more similar name, which must not be preferred
+		createAuthor("Gomez", "Abel", null);
+		SyncAuthorsCommand command = new SyncAuthorsCommand(dsRoot, AuthorsIndex.create(dsRoot, null, false));
+
+		Optional<DSAuthor> found = command.findAuthor(newAuthor("Gomez", "Abel", ORCID));
+
+		assertTrue(found.isPresent());
+		assertEquals(existing.getUuid(), found.get().getUuid());
+	}
+
+	@Test
+	void signatureWithOrcidUriMatchesAuthorWithBareOrcid() {
+		DSAuthor existing = createAuthor("Gómez", "Abel", ORCID);
+		SyncAuthorsCommand command = new SyncAuthorsCommand(dsRoot, AuthorsIndex.create(dsRoot, null, false));
+
+		Optional<DSAuthor> found = command.findAuthor(newAuthor("Gómez Llana", "Abel", "https://orcid.org/" + ORCID.toLowerCase()));
+
+		assertTrue(found.isPresent());
+		assertEquals(existing.getUuid(), found.get().getUuid());
+	}
+
+	@Test
+	void signatureWithOtherOrcidDoesNotMatchByOrcid() {
+		createAuthor("Gómez", "Abel", "https://orcid.org/" + ORCID);
+		SyncAuthorsCommand command = new SyncAuthorsCommand(dsRoot, AuthorsIndex.create(dsRoot, null, false));
+
+		assertTrue(command.findAuthor(newAuthor("Pérez", "Juan", "0000-0001-5109-3700")).isEmpty());
+	}
+
+	private DSAuthor createAuthor(String familyName, String givenName, String orcid) {
+		DSAuthor author = new DSAuthor();
+		author.setFamilyName(familyName);
+		author.setGivenName(givenName);
+		author.setName(author.getFullName());
+		author.setOrcid(orcid);
+		return dsRoot.getItemsEndpoint().createAuthor(author, dsRoot.getAuthorsCollection());
+	}
+
+	private static Author newAuthor(String familyName, String givenName, String orcid) {
+		Signature signature = new Signature();
+		signature.setFamilyName(familyName);
+		signature.setGivenName(givenName);
+		signature.setOrcid(orcid);
+		Author author = new Author();
+		author.getSignatures().add(signature);
+		return author;
+	}
+}
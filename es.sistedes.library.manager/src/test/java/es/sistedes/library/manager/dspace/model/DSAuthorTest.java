@@ -0,0 +1,56 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class DSAuthorTest {
+
+	private static final String ORCID = "0000-0002-1694-233X";
+
+	@Test
+	void normalizeOrcidReturnsTheBareForm() {
+		assertEquals(ORCID, DSAuthor.normalizeOrcid(ORCID));
+		assertEquals(ORCID, DSAuthor.normalizeOrcid("https://orcid.org/" + ORCID));
+		assertEquals(ORCID, DSAuthor.normalizeOrcid("http://orcid.org/" + ORCID + "/"));
+		assertEquals(ORCID, DSAuthor.normalizeOrcid("  orcid.org/0000-0002-1694-233x "));
+	}
+
+	@Test
+	void normalizeOrcidOnlyTrimsOtherValues() {
+		assertNull(DSAuthor.normalizeOrcid(null));
+		assertEquals("", DSAuthor.normalizeOrcid("  "));
+		assertEquals("0000-0002-1694", DSAuthor.normalizeOrcid(" 0000-0002-1694 "));
+	}
+
+	@Test
+	void hasOrcidComparesBareForms() {
+		DSAuthor author = new DSAuthor();
+		author.setOrcid("https://orcid.org/" + ORCID);
+		assertTrue(author.hasOrcid(ORCID));
+		assertTrue(author.hasOrcid("orcid.org/" + ORCID.toLowerCase()));
+		assertFalse(author.hasOrcid("0000-0002-1694-2330"));
+	}
+
+	@Test
+	void hasOrcidNeverMatchesMissingOrcids() {
+		DSAuthor author = new DSAuthor();
+		assertFalse(author.hasOrcid(null));
+		assertFalse(author.hasOrcid(""));
+		assertFalse(author.hasOrcid(ORCID));
+	}
+}
@@ -0,0 +1,133 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.InjectableValues;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import es.sistedes.library.manager.DSpaceConnectionManager;
+import es.sistedes.library.manager.DSpaceConnectionManager.DSpaceConnection;
+
+class DSItemTest {
+
+	private static final ObjectMapper MAPPER = DSpaceConnectionManager.createDefaultObjectMapper()
+			.setInjectableValues(new InjectableValues.Std().addValue(DSpaceConnection.class, null));
+
+	@Test
+	void unchangedItemsProduceAnEmptyPatch() throws JsonProcessingException {
+		DSItem item = retrieve("""
+				{ "metadata": { "dc.title": [ { "value": "Title", "language": "es" } ] } }
+				""");
+		assertTrue(item.createPatch().isEmpty());
+	}
+
+	@Test
+	void removalsStartFromTheEnd() throws JsonProcessingException {
+		DSItem item = retrieve("""
+				{ "metadata": { "dc.subject": [ { "value": "a" }, { "value": "b" }, { "value": "c" }, { "value": "d" } ] } }
+				""");
+		item.metadata.setSubjects(List.of("a", "c"));
+		assertPatch("""
+				[
+					{ "op": "replace", "path": "/metadata/dc.subject/1/value", "value": "c" },
+					{ "op": "remove", "path": "/metadata/dc.subject/3" },
+					{ "op": "remove", "path": "/metadata/dc.subject/2" }
+				]
+				""", item);
+	}
+
+	@Test
+	void newValuesAreAppended() throws JsonProcessingException {
+		DSItem item = retrieve("""
+				{ "metadata": { "dc.subject": [ { "value": "a" } ] } }
+				""");
+		item.metadata.setSubjects(List.of("a", "b", "c"));
+		assertPatch("""
+				[
+					{ "op": "add", "path": "/metadata/dc.subject/-", "value": { "value": "b", "confidence": -1, "place": 2 } },
+					{ "op": "add", "path": "/metadata/dc.subject/-", "value": { "value": "c", "confidence": -1, "place": 3 } }
+				]
+				""", item);
+	}
+
+	@Test
+	void newAndEmptiedFieldsAreAddedAndRemovedAsAWhole() throws JsonProcessingException {
+		DSItem item = retrieve("""
+				{ "metadata": { "dc.subject": [ { "value": "a" }, { "value": "b" } ] } }
+				""");
+		item.metadata.setSubjects(List.of());
+		item.metadata.setDescription("Description");
+		assertPatch("""
+				[
+					{ "op": "add", "path": "/metadata/dc.description", "value": [ { "value": "Description", "confidence": -1 } ] },
+					{ "op": "remove", "path": "/metadata/dc.subject" }
+				]
+				""", item);
+	}
+
+	@Test
+	void languageChangesReplaceTheWholeValue() throws JsonProcessingException {
+		DSItem item = retrieve("""
+				{ "metadata": { "dc.title": [ { "value": "Title", "language": "es" } ] } }
+				""");
+		item.metadata.setTitle("Title");
+		assertPatch("""
+				[
+					{ "op": "replace", "path": "/metadata/dc.title/0", "value": { "value": "Title", "confidence": -1 } }
+				]
+				""", item);
+	}
+
+	@Test
+	void changedFlagsAreReplaced() throws JsonProcessingException {
+		DSItem item = retrieve("""
+				{ "metadata": {}, "discoverable": true, "withdrawn": false }
+				""");
+		item.setDiscoverable(false);
+		item.setWithdrawn(true);
+		assertPatch("""
+				[
+					{ "op": "replace", "path": "/discoverable", "value": false },
+					{ "op": "replace", "path": "/withdrawn", "value": true }
+				]
+				""", item);
+	}
+
+	@Test
+	void flagsRestoredToTheirRetrievedValuesAreNotSent() throws JsonProcessingException {
+		DSItem item = retrieve("""
+				{ "metadata": {}, "discoverable": false, "withdrawn": true }
+				""");
+		item.setDiscoverable(true);
+		item.setDiscoverable(false);
+		item.setWithdrawn(null);
+		assertTrue(item.createPatch().isEmpty());
+	}
+
+	private static DSItem retrieve(String json) throws JsonProcessingException {
+		return MAPPER.readValue(json, DSItem.class);
+	}
+
+	private static void assertPatch(String expected, DSItem item) throws JsonProcessingException {
+		JsonNode patch = item.createPatch();
+		assertEquals(MAPPER.readTree(expected), patch, () -> patch.toPrettyString());
+	}
+}
@@ -0,0 +1,855 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.standin;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import es.sistedes.library.manager.dspace.client.ConditionalGetCacheFilterFunction;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.codec.http.cookie.Cookie;
+import io.netty.handler.codec.http.cookie.DefaultCookie;
+import io.netty.handler.codec.http.multipart.FileUpload;
+import io.netty.handler.codec.http.multipart.HttpData;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerResponse;
+
+/**
+ * In-memory stand-in of the DSpace REST API, implementing the subset of
+ * endpoints used by this application: the HAL root, authn and csrf,
+ * communities, collections, items, bundles, bitstreams, relationships,
+ * relationship types, discovery, resource policies and scripts. It allows
+ * running the commands end-to-end (e.g., for benchmarking purposes) without a
+ * real DSpace instance. Latency, jitter and error injection can be configured
+ * to simulate a loaded server.
+ *
+ * This is not a faithful implementation of DSpace: access control is not
+ * enforced (only the session tokens may be checked, see
+ * {@link #setStrictSessions(boolean)}), searches are simple token matches, and
+ * all state is lost when the server is stopped.
+ */
+public class DSpaceStandInServer {
+
+	private static final Logger logger = LoggerFactory.getLogger(DSpaceStandInServer.class);
+
+	public static final String API_PATH = "/server/api";
+
+	private static final String SISTEDES_COMMUNITY = "Archivo documental de Sistedes";
+	private static final String AUTHORS_COLLECTION = "Autores";
+	private static final String AUTHOR_ENTITY_TYPE = "Autor";
+	private static final int DEFAULT_PAGE_SIZE = 20;
+	// When sessions are checked, JWTs are still accepted for this time after a
+	// newer JWT has been issued, so that requests in flight do not fail
+	private static final Duration SUPERSEDED_TOKEN_GRACE = Duration.ofSeconds(1);
+	private static final Pattern FIELD_QUERY = Pattern.compile("^([\\w.]+):\"(.*)\"$");
+	// Open-ended range on the modification date, e.g., lastModified:[2023-01-01T00:00:00Z TO *]
+	private static final Pattern MODIFIED_SINCE_QUERY = Pattern.compile("^lastModified:\\[(\\S+) TO \\*\\]$");
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private Duration latency = Duration.ZERO;
+	private Duration jitter = Duration.ZERO;
+	private double errorRate = 0;
+	private int errorStatus = 503;
+	private Duration tokenLifetime = Duration.ofMinutes(30);
+	private boolean strictSessions = false;
+	private double xsrfRotationRate = 0;
+
+	private DisposableServer server;
+	private String baseUri;
+
+	// State of the server. All accesses are synchronized on this object
+	private final Map<String, ObjectNode> communities = new LinkedHashMap<>();
+	private final Map<String, ObjectNode> collections = new LinkedHashMap<>();
+	private final Map<String, ObjectNode> items = new LinkedHashMap<>();
+	private final Map<String, ObjectNode> bundles = new LinkedHashMap<>();
+	private final Map<String, ObjectNode> bitstreams = new LinkedHashMap<>();
+	private final Map<Integer, ObjectNode> relationships = new LinkedHashMap<>();
+	private final Map<Integer, ObjectNode> relationshipTypes = new LinkedHashMap<>();
+	private final Map<Integer, ObjectNode> resourcePolicies = new LinkedHashMap<>();
+	// Containment relations, from child UUID to parent UUID
+	private final Map<String, String> parents = new HashMap<>();
+	private final AtomicInteger ids = new AtomicInteger(1);
+	private final AtomicInteger handles = new AtomicInteger(1);
+	private final AtomicInteger requests = new AtomicInteger();
+	private final AtomicInteger injectedErrors = new AtomicInteger();
+	private final AtomicInteger rejectedRequests = new AtomicInteger();
+	// Issued JWTs to their expiry, and the last issued and received ones
+	private final Map<String, Instant> issuedTokens = new ConcurrentHashMap<>();
+	private volatile String lastIssuedToken;
+	private volatile String lastReceivedToken;
+
+	/**
+	 * Response of the stand-in to a request
+	 */
+	private static class Response {
+		private final int status;
+		private final JsonNode body;
+
+		private Response(int status, JsonNode body) {
+			this.status = status;
+			this.body = body;
+		}
+	}
+
+	public DSpaceStandInServer() {
+		ObjectNode sistedes = newCommunity(SISTEDES_COMMUNITY, null);
+		newCollection(AUTHORS_COLLECTION, sistedes.get("uuid").asText());
+		newRelationshipType("isAuthorOfPaper", "isPaperOfAuthor");
+		newRelationshipType("isAuthorOfAbstract", "isAbstractOfAuthor");
+	}
+
+	/**
+	 * Fixed delay added to every response
+	 *
+	 * @param latency
+	 */
+	public void setLatency(Duration latency) {
+		this.latency = latency;
+	}
+
+	/**
+	 * Maximum random delay added to every response, on top of the latency
+	 *
+	 * @param jitter
+	 */
+	public void setJitter(Duration jitter) {
+		this.jitter = jitter;
+	}
+
+	/**
+	 * Probability (between 0 and 1) that a request fails with the error status
+	 *
+	 * @param errorRate
+	 */
+	public void setErrorRate(double errorRate) {
+		this.errorRate = errorRate;
+	}
+
+	/**
+	 * HTTP status of the injected errors
+	 *
+	 * @param errorStatus
+	 */
+	public void setErrorStatus(int errorStatus) {
+		this.errorStatus = errorStatus;
+	}
+
+	/**
+	 * Lifetime of the JWT issued on login
+	 *
+	 * @param tokenLifetime
+	 */
+	public void setTokenLifetime(Duration tokenLifetime) {
+		this.tokenLifetime = tokenLifetime;
+	}
+
+	/**
+	 * Whether the session tokens are checked: requests (other than those needed
+	 * to log in) must carry an unexpired JWT issued by this server, and requests
+	 * other than GETs must carry an XSRF token matching their XSRF cookie.
+	 * Rejected requests fail with a 401 or 403 status, respectively. Unlike
+	 * DSpace, a JWT expires shortly after a newer one is issued, so that clients
+	 * that keep using a superseded JWT are detected.
+	 *
+	 * @param strictSessions
+	 */
+	public void setStrictSessions(boolean strictSessions) {
+		this.strictSessions = strictSessions;
+	}
+
+	/**
+	 * Probability (between 0 and 1) that a response carries a new XSRF token
+	 * (and cookie), on top of the responses of the csrf endpoint
+	 *
+	 * @param xsrfRotationRate
+	 */
+	public void setXsrfRotationRate(double xsrfRotationRate) {
+		this.xsrfRotationRate = xsrfRotationRate;
+	}
+
+	/**
+	 * @return the last JWT issued on login or refresh
+	 */
+	public String getLastIssuedToken() {
+		return lastIssuedToken;
+	}
+
+	/**
+	 * @return the JWT carried by the last accepted request, when sessions are
+	 *         checked (see {@link #setStrictSessions(boolean)})
+	 */
+	public String getLastReceivedToken() {
+		return lastReceivedToken;
+	}
+
+	/**
+	 * @return the number of requests rejected because of their session tokens
+	 */
+	public int getRejectedRequests() {
+		return rejectedRequests.get();
+	}
+
+	/**
+	 * Creates a new top level community, e.g., the community of a conference
+	 *
+	 * @param name
+	 * @return the UUID of the community
+	 */
+	public synchronized String addTopCommunity(String name) {
+		return newCommunity(name, null).get("uuid").asText();
+	}
+
+	/**
+	 * Starts the server
+	 *
+	 * @param host
+	 * @param port the port, or 0 to use any free port
+	 * @return the {@link URI} of the root endpoint of the API
+	 */
+	public URI start(String host, int port) {
+		server = HttpServer.create().host(host).port(port).handle(this::handle).bindNow();
+		baseUri = "http://" + host + ":" + server.port() + API_PATH;
+		logger.info(MessageFormat.format("DSpace stand-in listening on {0}", baseUri));
+		return URI.create(baseUri);
+	}
+
+	/**
+	 * Blocks until the server is stopped
+	 */
+	public void awaitStop() {
+		server.onDispose().block();
+	}
+
+	public void stop() {
+		server.disposeNow();
+		logger.info(MessageFormat.format("DSpace stand-in served {0} request(s), {1} with injected errors", requests.get(), injectedErrors.get()));
+	}
+
+	private Mono<Void> handle(HttpServerRequest request, HttpServerResponse response) {
+		requests.incrementAndGet();
+		long delay = latency.toMillis() + (jitter.isZero() ? 0 : ThreadLocalRandom.current().nextLong(jitter.toMillis() + 1));
+		return Mono.delay(Duration.ofMillis(delay)).then(Mono.defer(() -> {
+			if (errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+				injectedErrors.incrementAndGet();
+				return request.receive().then(response.status(errorStatus).send());
+			}
+			QueryStringDecoder decoder = new QueryStringDecoder(request.uri());
+			String path = StringUtils.removeStart(decoder.path(), API_PATH);
+			Map<String, List<String>> params = decoder.parameters();
+			Response rejection = checkSession(request, path);
+			if (rejection != null) {
+				rejectedRequests.incrementAndGet();
+				return request.receive().then(send(request, response, rejection));
+			}
+			if (path.equals("/security/csrf") || (xsrfRotationRate > 0 && ThreadLocalRandom.current().nextDouble() < xsrfRotationRate)) {
+				String token = UUID.randomUUID().toString();
+				response.header("DSPACE-XSRF-TOKEN", token);
+				response.addCookie(new DefaultCookie("DSPACE-XSRF-COOKIE", token));
+			}
+			if (request.method() == HttpMethod.POST && path.matches("/core/bundles/[^/]+/bitstreams")) {
+				// Multipart upload
+				return request.receiveForm().collectList().flatMap(parts -> {
+					String name = null;
+					long size = 0;
+					for (HttpData part : parts) {
+						try {
+							if (part instanceof FileUpload) {
+								size = part.length();
+							} else if ("properties".equals(part.getName())) {
+								name = mapper.readTree(part.getString(StandardCharsets.UTF_8)).path("name").asText(null);
+							}
+						} catch (Exception e) {
+							return send(request, response, new Response(400, null));
+						}
+					}
+					Response result;
+					synchronized (this) {
+						result = createBitstream(path.split("/")[3], name, size);
+					}
+					return send(request, response, result);
+				});
+			}
+			return request.receive().aggregate().asString(StandardCharsets.UTF_8).defaultIfEmpty("").flatMap(body -> {
+				Response result;
+				try {
+					if (path.equals("/authn/login") && request.method() == HttpMethod.POST) {
+						response.header("Authorization", "Bearer " + newToken());
+					}
+					synchronized (this) {
+						result = route(request.method(), path, params, body);
+					}
+				} catch (Exception e) {
+					logger.warn(MessageFormat.format("Unable to process {0} {1} ({2})", request.method(), request.uri(), e.getLocalizedMessage()));
+					result = new Response(400, null);
+				}
+				return send(request, response, result);
+			});
+		}));
+	}
+
+	/**
+	 * Returns the response to a request whose session tokens are not valid, or
+	 * <code>null</code> if they are valid or sessions are not checked
+	 */
+	private Response checkSession(HttpServerRequest request, String path) {
+		if (!strictSessions) {
+			return null;
+		}
+		if (request.method() != HttpMethod.GET) {
+			String xsrfToken = request.requestHeaders().get("X-XSRF-TOKEN");
+			Set<Cookie> cookies = request.cookies().getOrDefault("DSPACE-XSRF-COOKIE", Set.of());
+			if (xsrfToken == null || cookies.stream().noneMatch(cookie -> cookie.value().equals(xsrfToken))) {
+				return new Response(403, null);
+			}
+		}
+		String endpoint = StringUtils.removeEnd(path, "/");
+		if (endpoint.isEmpty() || endpoint.equals("/authn") || endpoint.equals("/authn/login") || endpoint.equals("/security/csrf")) {
+			return null;
+		}
+		// As DSpace does, remove any "Bearer" prefix, even if it is repeated
+		String authToken = StringUtils.remove(StringUtils.defaultString(request.requestHeaders().get("Authorization")), "Bearer").trim();
+		Instant expiry = issuedTokens.get(authToken);
+		if (expiry == null || expiry.isBefore(Instant.now())) {
+			return new Response(401, null);
+		}
+		lastReceivedToken = authToken;
+		return null;
+	}
+
+	private Mono<Void> send(HttpServerRequest request, HttpServerResponse response, Response result) {
+		if (result.body == null) {
+			return response.status(result.status).send();
+		}
+		String body;
+		try {
+			body = mapper.writeValueAsString(result.body);
+		} catch (JsonProcessingException e) {
+			return response.status(500).send();
+		}
+		if (request.method() == HttpMethod.GET && result.status == 200) {
+			String etag = "\"" + ConditionalGetCacheFilterFunction.hash(body).substring(0, 16) + "\"";
+			if (etag.equals(request.requestHeaders().get("If-None-Match"))) {
+				return response.status(304).header("ETag", etag).send();
+			}
+			response.header("ETag", etag);
+		}
+		return response.status(result.status).header("Content-Type", "application/json").sendString(Mono.just(body), StandardCharsets.UTF_8).then();
+	}
+
+	private Response route(HttpMethod method, String path, Map<String, List<String>> params, String body) throws Exception {
+		List<String> s = Arrays.stream(path.split("/")).filter(StringUtils::isNotEmpty).toList();
+		boolean get = method == HttpMethod.GET;
+		boolean post = method == HttpMethod.POST;
+		if (s.isEmpty() && get) {
+			return ok(links(baseUri, "authn", "authn", "communities", "core/communities", "collections", "core/collections", "items", "core/items", "bundles",
+					"core/bundles", "relationships", "core/relationships", "relationshiptypes", "core/relationshiptypes", "discover", "discover",
+					"resourcepolicies", "authz/resourcepolicies"));
+		}
+		String first = s.get(0);
+		if (first.equals("security") && get) {
+			return new Response(204, null);
+		} else if (first.equals("authn")) {
+			return s.size() == 1 ? ok(links(baseUri + "/authn", "login", "login", "logout", "logout")) : new Response(post ? 200 : 405, null);
+		} else if (first.equals("discover")) {
+			if (s.size() == 1) {
+				return ok(links(baseUri + "/discover", "search", "search"));
+			} else if (s.size() == 2) {
+				return ok(links(baseUri + "/discover/search", "objects", "objects"));
+			}
+			return search(params);
+		} else if (first.equals("system") && s.size() == 2 && get) {
+			return ok(links(baseUri + "/system/scripts"));
+		} else if (first.equals("system") && post) {
+			ObjectNode process = mapper.createObjectNode();
+			process.put("processId", ids.getAndIncrement());
+			process.put("processStatus", "SCHEDULED");
+			return new Response(201, process);
+		} else if (first.equals("authz")) {
+			if (s.size() == 4 && get) {
+				String uuid = param(params, "uuid");
+				List<JsonNode> policies = resourcePolicies.values().stream().filter(p -> p.path("resource").asText().equals(uuid)).collect(Collectors.toList());
+				return ok(page("resourcepolicies", policies, baseUri + "/authz/resourcepolicies/search/resource", params));
+			} else if (s.size() == 3 && method == HttpMethod.DELETE) {
+				return new Response(resourcePolicies.remove(Integer.valueOf(s.get(2))) != null ? 204 : 404, null);
+			}
+		} else if (first.equals("core") && s.size() >= 2) {
+			return routeCore(method, s, params, body);
+		}
+		return new Response(404, null);
+	}
+
+	private Response routeCore(HttpMethod method, List<String> s, Map<String, List<String>> params, String body) throws Exception {
+		String type = s.get(1);
+		String id = s.size() > 2 ? s.get(2) : null;
+		String sub = s.size() > 3 ? s.get(3) : null;
+		boolean get = method == HttpMethod.GET;
+		boolean post = method == HttpMethod.POST;
+		String self = baseUri + "/core/" + type;
+		switch (type) {
+		case "communities":
+			if (id == null && get) {
+				return ok(links(self, "search", "search"));
+			} else if (id == null && post) {
+				ObjectNode community = newCommunity(null, param(params, "parent"));
+				community.set("metadata", mapper.readTree(body).path("metadata"));
+				community.put("name", firstValue(community, "dc.title"));
+				return new Response(201, renderCommunity(community));
+			} else if ("search".equals(id)) {
+				if (sub == null) {
+					return ok(links(self + "/search", "top", "top"));
+				}
+				List<JsonNode> top = communities.values().stream().filter(c -> !parents.containsKey(c.get("uuid").asText())).map(this::renderCommunity)
+						.collect(Collectors.toList());
+				return ok(page("communities", top, self + "/search/top", params));
+			} else if (communities.containsKey(id) && get) {
+				if ("collections".equals(sub)) {
+					List<JsonNode> children = collections.values().stream().filter(c -> id.equals(parents.get(c.get("uuid").asText())))
+							.map(this::renderCollection).collect(Collectors.toList());
+					return ok(page("collections", children, self + "/" + id + "/collections", params));
+				}
+				return ok(renderCommunity(communities.get(id)));
+			}
+			break;
+		case "collections":
+			if (id == null && get) {
+				return ok(links(self));
+			} else if (id == null && post) {
+				ObjectNode collection = newCollection(null, param(params, "parent"));
+				collection.set("metadata", mapper.readTree(body).path("metadata"));
+				collection.put("name", firstValue(collection, "dc.title"));
+				return new Response(201, renderCollection(collection));
+			} else if (collections.containsKey(id) && get) {
+				return ok(renderCollection(collections.get(id)));
+			}
+			break;
+		case "items":
+			if (id == null && get) {
+				return ok(links(self));
+			} else if (id == null && post) {
+				return new Response(201, render(createItem(mapper.readTree(body), param(params, "owningCollection")), Collections.emptyList()));
+			} else if (!items.containsKey(id)) {
+				return new Response(404, null);
+			} else if (sub == null && get) {
+				return ok(render(items.get(id), params.getOrDefault("embed", Collections.emptyList())));
+			} else if (sub == null && method == HttpMethod.PUT) {
+				ObjectNode item = items.get(id);
+				item.set("metadata", mapper.readTree(body).path("metadata"));
+				touch(item);
+				return ok(render(item, Collections.emptyList()));
+			} else if (sub == null && method == HttpMethod.PATCH) {
+				ObjectNode item = items.get(id);
+				applyPatch(item, mapper.readTree(body));
+				touch(item);
+				return ok(render(item, Collections.emptyList()));
+			} else if ("bundles".equals(sub) && get) {
+				return ok(renderBundles(id, false, params));
+			} else if ("bundles".equals(sub) && post) {
+				ObjectNode bundle = mapper.createObjectNode();
+				bundle.put("uuid", UUID.randomUUID().toString());
+				bundle.put("name", mapper.readTree(body).path("name").asText());
+				bundles.put(bundle.get("uuid").asText(), bundle);
+				parents.put(bundle.get("uuid").asText(), id);
+				return new Response(201, renderBundle(bundle, false));
+			} else if ("relationships".equals(sub) && get) {
+				return ok(renderRelationships(id, params));
+			}
+			break;
+		case "bundles":
+			if (bundles.containsKey(id) && "bitstreams".equals(sub) && get) {
+				return ok(renderBitstreams(id, params));
+			}
+			break;
+		case "relationships":
+			if (id == null && post) {
+				String[] uris = body.trim().split("\\s+");
+				ObjectNode relationship = mapper.createObjectNode();
+				relationship.put("id", ids.getAndIncrement());
+				relationship.put("leftItem", StringUtils.substringAfterLast(uris[0], "/"));
+				relationship.put("rightItem", StringUtils.substringAfterLast(uris[uris.length - 1], "/"));
+				relationship.put("relationshipType", Integer.valueOf(param(params, "relationshipType")));
+				relationships.put(relationship.get("id").asInt(), relationship);
+				return new Response(201, renderRelationship(relationship));
+			} else if (id != null && method == HttpMethod.DELETE) {
+				return new Response(relationships.remove(Integer.valueOf(id)) != null ? 204 : 404, null);
+			} else if (id == null && get) {
+				return ok(links(self));
+			}
+			break;
+		case "relationshiptypes":
+			if (id == null && get) {
+				List<JsonNode> types = relationshipTypes.values().stream().map(t -> {
+					ObjectNode result = t.deepCopy();
+					addLinks(result, self + "/" + t.get("id").asInt());
+					return (JsonNode) result;
+				}).collect(Collectors.toList());
+				return ok(page("relationshiptypes", types, self, params));
+			}
+			break;
+		}
+		return new Response(404, null);
+	}
+
+	private Response search(Map<String, List<String>> params) {
+		String query = StringUtils.defaultString(param(params, "query")).trim();
+		String entityType = StringUtils.substringBefore(param(params, "f.entityType"), ",");
+		// Field queries may be combined with OR (e.g., batched lookups of ORCIDs)
+		List<Matcher> fieldQueries = Arrays.stream(query.split(" OR ")).map(FIELD_QUERY::matcher).toList();
+		boolean isFieldQuery = fieldQueries.stream().allMatch(Matcher::matches);
+		Matcher modifiedSinceQuery = MODIFIED_SINCE_QUERY.matcher(query);
+		List<String> tokens = tokenize(query);
+		// @formatter:off
+		List<JsonNode> objects = items.values().stream()
+				.filter(item -> entityType == null || entityType.equals(firstValue(item, "dspace.entity.type")))
+				.filter(item -> {
+					if (isFieldQuery) {
+						return fieldQueries.stream().anyMatch(fieldQuery -> values(item, fieldQuery.group(1)).contains(fieldQuery.group(2)));
+					}
+					if (modifiedSinceQuery.matches()) {
+						return !Instant.parse(item.path("lastModified").asText()).isBefore(Instant.parse(modifiedSinceQuery.group(1)));
+					}
+					List<String> itemTokens = tokenize(String.join(" ", values(item, null)));
+					return itemTokens.containsAll(tokens);
+				})
+				.map(item -> {
+					ObjectNode object = mapper.createObjectNode();
+					object.put("type", "discover");
+					object.putObject("_embedded").set("indexableObject", render(item, Collections.emptyList()));
+					return (JsonNode) object;
+				}).collect(Collectors.toList());
+		// @formatter:on
+		ObjectNode result = links(baseUri + "/discover/search/objects");
+		result.putObject("_embedded").set("searchResult", page("objects", objects, baseUri + "/discover/search/objects", params));
+		return ok(result);
+	}
+
+	private ObjectNode createItem(JsonNode body, String owningCollection) {
+		ObjectNode item = mapper.createObjectNode();
+		String uuid = UUID.randomUUID().toString();
+		item.put("uuid", uuid);
+		item.put("id", uuid);
+		item.put("handle", "123456789/" + handles.getAndIncrement());
+		item.set("metadata", body.path("metadata").deepCopy());
+		item.put("inArchive", true);
+		item.put("discoverable", body.path("discoverable").asBoolean(true));
+		item.put("withdrawn", false);
+		touch(item);
+		items.put(uuid, item);
+		parents.put(uuid, owningCollection);
+		newResourcePolicy(uuid);
+		return item;
+	}
+
+	private Response createBitstream(String bundleUuid, String name, long size) {
+		if (!bundles.containsKey(bundleUuid)) {
+			return new Response(404, null);
+		}
+		ObjectNode bitstream = mapper.createObjectNode();
+		bitstream.put("uuid", UUID.randomUUID().toString());
+		bitstream.put("name", name);
+		bitstream.put("sizeBytes", size);
+		bitstreams.put(bitstream.get("uuid").asText(), bitstream);
+		parents.put(bitstream.get("uuid").asText(), bundleUuid);
+		return new Response(201, renderBitstream(bitstream));
+	}
+
+	private void applyPatch(ObjectNode item, JsonNode patch) {
+		ObjectNode metadata = (ObjectNode) item.get("metadata");
+		for (JsonNode operation : patch) {
+			String op = operation.path("op").asText();
+			List<String> path = Arrays.stream(operation.path("path").asText().split("/")).filter(StringUtils::isNotEmpty).toList();
+			JsonNode value = operation.get("value");
+			if (!path.get(0).equals("metadata")) {
+				item.set(path.get(0), value);
+				continue;
+			}
+			String field = path.get(1);
+			if (path.size() == 2) {
+				if (op.equals("remove")) {
+					metadata.remove(field);
+				} else {
+					metadata.set(field, value);
+				}
+				continue;
+			}
+			ArrayNode values = metadata.withArray(field);
+			if (path.get(2).equals("-")) {
+				values.add(value);
+			} else if (path.size() == 4) {
+				((ObjectNode) values.get(Integer.parseInt(path.get(2)))).set(path.get(3), value);
+			} else if (op.equals("remove")) {
+				values.remove(Integer.parseInt(path.get(2)));
+			} else {
+				values.set(Integer.parseInt(path.get(2)), value);
+			}
+		}
+	}
+
+	private ObjectNode render(ObjectNode item, List<String> embeds) {
+		String uuid = item.get("uuid").asText();
+		ObjectNode result = item.deepCopy();
+		result.put("name", StringUtils.defaultIfEmpty(firstValue(item, "dc.title"),
+				StringUtils.defaultString(firstValue(item, "person.familyName")) + ", " + StringUtils.defaultString(firstValue(item, "person.givenName"))));
+		result.put("type", "item");
+		addLinks(result, baseUri + "/core/items/" + uuid, "bundles", "bundles", "relationships", "relationships");
+		ObjectNode embedded = mapper.createObjectNode();
+		for (String embed : embeds) {
+			if (embed.startsWith("bundles")) {
+				embedded.set("bundles", renderBundles(uuid, embed.equals("bundles/bitstreams"), Collections.emptyMap()));
+			} else if (embed.equals("relationships")) {
+				embedded.set("relationships", renderRelationships(uuid, Collections.emptyMap()));
+			}
+		}
+		if (!embedded.isEmpty()) {
+			result.set("_embedded", embedded);
+		}
+		return result;
+	}
+
+	private ObjectNode renderBundles(String itemUuid, boolean embedBitstreams, Map<String, List<String>> params) {
+		List<JsonNode> itemBundles = bundles.values().stream().filter(b -> itemUuid.equals(parents.get(b.get("uuid").asText())))
+				.map(b -> renderBundle(b, embedBitstreams)).collect(Collectors.toList());
+		return page("bundles", itemBundles, baseUri + "/core/items/" + itemUuid + "/bundles", params);
+	}
+
+	private ObjectNode renderBundle(ObjectNode bundle, boolean embedBitstreams) {
+		ObjectNode result = bundle.deepCopy();
+		result.put("type", "bundle");
+		String uuid = bundle.get("uuid").asText();
+		addLinks(result, baseUri + "/core/bundles/" + uuid, "bitstreams", "bitstreams");
+		if (embedBitstreams) {
+			result.putObject("_embedded").set("bitstreams", renderBitstreams(uuid, Collections.emptyMap()));
+		}
+		return result;
+	}
+
+	private ObjectNode renderBitstreams(String bundleUuid, Map<String, List<String>> params) {
+		List<JsonNode> bundleBitstreams = bitstreams.values().stream().filter(b -> bundleUuid.equals(parents.get(b.get("uuid").asText())))
+				.map(this::renderBitstream).collect(Collectors.toList());
+		return page("bitstreams", bundleBitstreams, baseUri + "/core/bundles/" + bundleUuid + "/bitstreams", params);
+	}
+
+	private ObjectNode renderBitstream(ObjectNode bitstream) {
+		ObjectNode result = bitstream.deepCopy();
+		result.put("type", "bitstream");
+		addLinks(result, baseUri + "/core/bitstreams/" + bitstream.get("uuid").asText());
+		return result;
+	}
+
+	private ObjectNode renderRelationships(String itemUuid, Map<String, List<String>> params) {
+		List<JsonNode> itemRelationships = relationships.values().stream()
+				.filter(r -> itemUuid.equals(r.get("leftItem").asText()) || itemUuid.equals(r.get("rightItem").asText())).map(this::renderRelationship)
+				.collect(Collectors.toList());
+		return page("relationships", itemRelationships, baseUri + "/core/items/" + itemUuid + "/relationships", params);
+	}
+
+	private ObjectNode renderRelationship(ObjectNode relationship) {
+		ObjectNode result = mapper.createObjectNode();
+		result.put("id", relationship.get("id").asInt());
+		result.put("type", "relationship");
+		addLinks(result, baseUri + "/core/relationships/" + relationship.get("id").asInt());
+		return result;
+	}
+
+	private ObjectNode renderCommunity(ObjectNode community) {
+		ObjectNode result = community.deepCopy();
+		result.put("type", "community");
+		addLinks(result, baseUri + "/core/communities/" + community.get("uuid").asText(), "collections", "collections");
+		return result;
+	}
+
+	private ObjectNode renderCollection(ObjectNode collection) {
+		ObjectNode result = collection.deepCopy();
+		result.put("type", "collection");
+		addLinks(result, baseUri + "/core/collections/" + collection.get("uuid").asText());
+		return result;
+	}
+
+	private ObjectNode newCommunity(String name, String parent) {
+		ObjectNode community = newContainer(name);
+		communities.put(community.get("uuid").asText(), community);
+		if (parent != null) {
+			parents.put(community.get("uuid").asText(), parent);
+		}
+		return community;
+	}
+
+	private ObjectNode newCollection(String name, String parent) {
+		ObjectNode collection = newContainer(name);
+		collections.put(collection.get("uuid").asText(), collection);
+		parents.put(collection.get("uuid").asText(), parent);
+		return collection;
+	}
+
+	private ObjectNode newContainer(String name) {
+		ObjectNode container = mapper.createObjectNode();
+		String uuid = UUID.randomUUID().toString();
+		container.put("uuid", uuid);
+		container.put("id", uuid);
+		container.put("name", name);
+		container.put("handle", "123456789/" + handles.getAndIncrement());
+		container.putObject("metadata").putArray("dc.title").addObject().put("value", name);
+		newResourcePolicy(uuid);
+		return container;
+	}
+
+	private void newRelationshipType(String leftwardType, String rightwardType) {
+		ObjectNode type = mapper.createObjectNode();
+		type.put("id", ids.getAndIncrement());
+		type.put("leftwardType", leftwardType);
+		type.put("rightwardType", rightwardType);
+		relationshipTypes.put(type.get("id").asInt(), type);
+	}
+
+	private void newResourcePolicy(String resourceUuid) {
+		ObjectNode policy = mapper.createObjectNode();
+		policy.put("id", ids.getAndIncrement());
+		policy.put("action", "READ");
+		policy.put("type", "TYPE_INHERITED");
+		policy.put("resource", resourceUuid);
+		resourcePolicies.put(policy.get("id").asInt(), policy);
+	}
+
+	private String newToken() {
+		Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+		String header = encoder.encodeToString("{\"alg\":\"none\"}".getBytes(StandardCharsets.UTF_8));
+		String payload = encoder.encodeToString(MessageFormat.format("'{'\"exp\":{0,number,#},\"jti\":\"{1}\"'}'",
+				Instant.now().plus(tokenLifetime).getEpochSecond(), UUID.randomUUID()).getBytes(StandardCharsets.UTF_8));
+		String token = header + "." + payload + ".";
+		if (strictSessions) {
+			Instant superseded = Instant.now().plus(SUPERSEDED_TOKEN_GRACE);
+			issuedTokens.replaceAll((issued, expiry) -> expiry.isAfter(superseded) ? superseded : expiry);
+		}
+		issuedTokens.put(token, Instant.now().plus(tokenLifetime));
+		lastIssuedToken = token;
+		return token;
+	}
+
+	private void touch(ObjectNode item) {
+		item.put("lastModified", Instant.now().toString());
+	}
+
+	/**
+	 * Creates a HAL page with the given elements, according to the
+	 * <code>page</code> and <code>size</code> request parameters
+	 */
+	private ObjectNode page(String name, List<JsonNode> all, String self, Map<String, List<String>> params) {
+		int size = Integer.parseInt(StringUtils.defaultIfEmpty(param(params, "size"), String.valueOf(DEFAULT_PAGE_SIZE)));
+		int number = Integer.parseInt(StringUtils.defaultIfEmpty(param(params, "page"), "0"));
+		ObjectNode result = mapper.createObjectNode();
+		ArrayNode elements = result.putObject("_embedded").putArray(name);
+		all.stream().skip((long) number * size).limit(size).forEach(elements::add);
+		ObjectNode page = result.putObject("page");
+		page.put("size", size);
+		page.put("totalElements", all.size());
+		page.put("totalPages", (all.size() + size - 1) / size);
+		page.put("number", number);
+		ObjectNode links = result.putObject("_links");
+		links.putObject("self").put("href", withPage(self, params, number));
+		if ((long) (number + 1) * size < all.size()) {
+			links.putObject("next").put("href", withPage(self, params, number + 1));
+		}
+		return result;
+	}
+
+	private static String withPage(String self, Map<String, List<String>> params, int number) {
+		List<String> query = new ArrayList<>();
+		params.forEach((name, values) -> {
+			if (!name.equals("page")) {
+				values.forEach(value -> query.add(name + "=" + URLEncoder.encode(value, StandardCharsets.UTF_8)));
+			}
+		});
+		query.add("page=" + number);
+		return self + "?" + String.join("&", query);
+	}
+
+	private ObjectNode links(String self, String... namesAndPaths) {
+		ObjectNode result = mapper.createObjectNode();
+		addLinks(result, self, namesAndPaths);
+		return result;
+	}
+
+	private static void addLinks(ObjectNode node, String self, String... namesAndPaths) {
+		ObjectNode links = node.putObject("_links");
+		links.putObject("self").put("href", self);
+		for (int i = 0; i + 1 < namesAndPaths.length; i += 2) {
+			links.putObject(namesAndPaths[i]).put("href", self + "/" + namesAndPaths[i + 1]);
+		}
+	}
+
+	private static String param(Map<String, List<String>> params, String name) {
+		List<String> values = params.get(name);
+		return values == null || values.isEmpty() ? null : values.get(0);
+	}
+
+	private static String firstValue(JsonNode node, String field) {
+		return node.path("metadata").path(field).path(0).path("value").asText(null);
+	}
+
+	/**
+	 * Returns the metadata values of the given field, or all the values if the
+	 * field is <code>null</code>
+	 */
+	private static List<String> values(JsonNode node, String field) {
+		List<String> result = new ArrayList<>();
+		node.path("metadata").fields().forEachRemaining(entry -> {
+			if (field == null || field.equals(entry.getKey())) {
+				entry.getValue().forEach(value -> result.add(value.path("value").asText("")));
+			}
+		});
+		return result;
+	}
+
+	private static List<String> tokenize(String text) {
+		String normalized = StringUtils.stripAccents(text).toLowerCase(Locale.ROOT);
+		return Arrays.stream(normalized.split("[^\\p{Alnum}]+")).filter(StringUtils::isNotEmpty).toList();
+	}
+
+	private static Response ok(JsonNode body) {
+		return new Response(200, body);
+	}
+}
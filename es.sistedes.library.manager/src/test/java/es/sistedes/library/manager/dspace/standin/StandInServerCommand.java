@@ -0,0 +1,81 @@
+/*******************************************************************************
+* Copyright (c) 2023 Sistedes
+* All rights reserved. This program and the accompanying materials
+* are made available under the terms of the Eclipse Public License v2.0
+* which accompanies this distribution, and is available at
+* http://www.eclipse.org/legal/epl-v20.html
+*
+* Contributors:
+* Abel Gómez - initial API and implementation
+*******************************************************************************/
+
+package es.sistedes.library.manager.dspace.standin;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import picocli.CommandLine;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+// @formatter:off
+@Command(name = "stand-in", mixinStandardHelpOptions = true,
+		description = "Starts an in-memory stand-in of the DSpace REST API, so that the rest of commands can be "
+				+ "run and benchmarked without a real Sistedes Digital Library. All data is lost when the server stops.")
+// @formatter:on
+public class StandInServerCommand implements Callable<Integer> {
+
+	@Option(names = { "-H", "--host" }, paramLabel = "HOST", description = "Host to bind to. Defaults to localhost.")
+	private String host = "localhost";
+
+	@Option(names = { "-P", "--port" }, paramLabel = "PORT", description = "Port to listen on. Defaults to 8080.")
+	private int port = 8080;
+
+	@Option(names = { "-l", "--latency" }, paramLabel = "MILLIS", description = "Fixed delay added to every response, in milliseconds.")
+	private long latency = 0;
+
+	@Option(names = { "-j", "--jitter" }, paramLabel = "MILLIS", description = "Maximum random delay added to every response, in milliseconds.")
+	private long jitter = 0;
+
+	@Option(names = { "-r", "--error-rate" }, paramLabel = "RATE", description = "Probability (0 to 1) that a request fails. Defaults to 0.")
+	private double errorRate = 0;
+
+	@Option(names = { "-s", "--error-status" }, paramLabel = "STATUS", description = "HTTP status of the injected failures. Defaults to 503.")
+	private int errorStatus = 503;
+
+	@Option(names = { "-t", "--token-lifetime" }, paramLabel = "SECONDS", description = "Lifetime of the issued authentication tokens, in seconds. Defaults to 1800.")
+	private long tokenLifetime = 1800;
+
+	@Option(names = { "-c", "--conference" }, paramLabel = "NAME", description = "Name of a top level conference community to create, e.g., \"Jornadas de Ingeniería del Software y Bases de Datos (JISBD)\". Can be repeated.")
+	private List<String> conferences = new ArrayList<>();
+
+	/**
+	 * Runs the stand-in server from the test classpath, e.g., to point a packaged
+	 * manager at it when benchmarking
+	 * 
+	 * @param args
+	 */
+	public static void main(String[] args) {
+		System.exit(new CommandLine(new StandInServerCommand()).execute(args));
+	}
+
+	@Override
+	public Integer call() throws Exception {
+		DSpaceStandInServer server = new DSpaceStandInServer();
+		server.setLatency(Duration.ofMillis(latency));
+		server.setJitter(Duration.ofMillis(jitter));
+		server.setErrorRate(errorRate);
+		server.setErrorStatus(errorStatus);
+		server.setTokenLifetime(Duration.ofSeconds(tokenLifetime));
+		conferences.forEach(server::addTopCommunity);
+
+		server.start(host, port);
+		Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+		server.awaitStop();
+
+		// Return success
+		return 0;
+	}
+}